@@ -0,0 +1,146 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioGame;
+import engine.core.MarioSnapshot;
+import engine.core.MarioTimer;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+
+/**
+ * A* search trees of the robinBaumgarten, killer and collector agents while they play a reference level.
+ * latency gives each decision a fixed number of expansions so the cost of the search itself is measured,
+ * expansions uses the normal wall clock budget and counts the nodes taken from the open list, dividing
+ * its expandedNodes counter by the score gives the nodes expanded per tick. robinBaumgartenParallel
+ * simulates as many nodes at the same time as there are available processors.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AStarSearchBenchmark {
+    @Param({"robinBaumgarten", "robinBaumgartenParallel", "collector", "killer"})
+    public String agentName;
+
+    @Param({"400"})
+    public int iterations;
+
+    private MarioWorld world;
+    private MarioForwardModel game;
+    private MarioSnapshot start;
+    private Search search;
+    private MarioForwardModel current;
+    private boolean[] actions;
+
+    /**
+     * The AStarTree classes of the agents share no type, so each one is wrapped
+     */
+    private interface Search {
+        boolean[] optimise(MarioForwardModel model, MarioTimer timer);
+
+        int getExpandedNodes();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long expandedNodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.expandedNodes = 0;
+        }
+    }
+
+    private static Search createSearch(String agentName) {
+        switch (agentName) {
+            case "robinBaumgarten":
+            case "robinBaumgartenParallel": {
+                agents.robinBaumgarten.AStarTree tree = new agents.robinBaumgarten.AStarTree(
+                        agentName.equals("robinBaumgarten") ? 1 : Runtime.getRuntime().availableProcessors());
+                return new Search() {
+                    public boolean[] optimise(MarioForwardModel model, MarioTimer timer) {
+                        return tree.optimise(model, timer);
+                    }
+
+                    public int getExpandedNodes() {
+                        return tree.expandedNodes;
+                    }
+                };
+            }
+            case "killer": {
+                agents.killer.AStarTree tree = new agents.killer.AStarTree();
+                return new Search() {
+                    public boolean[] optimise(MarioForwardModel model, MarioTimer timer) {
+                        return tree.optimise(model, timer);
+                    }
+
+                    public int getExpandedNodes() {
+                        return tree.expandedNodes;
+                    }
+                };
+            }
+            case "collector": {
+                agents.collector.AStarTree tree = new agents.collector.AStarTree();
+                return new Search() {
+                    public boolean[] optimise(MarioForwardModel model, MarioTimer timer) {
+                        return tree.optimise(model, timer);
+                    }
+
+                    public int getExpandedNodes() {
+                        return tree.expandedNodes;
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("No A* search in agent " + agentName);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.world = BenchmarkGame.createWorld(BenchmarkLevels.MIXED, 300, 0);
+        this.game = new MarioForwardModel(this.world);
+        this.start = this.game.snapshot();
+        this.search = createSearch(this.agentName);
+    }
+
+    @Setup(Level.Invocation)
+    public void nextTick() {
+        if (this.actions != null) {
+            this.world.update(this.actions);
+        }
+        if (this.world.gameStatus != GameStatus.RUNNING) {
+            this.game.restore(this.start);
+        }
+        this.current = new MarioForwardModel(this.world.clone());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public boolean[] latency() {
+        this.actions = this.search.optimise(this.current, MarioTimer.createIterationTimer(this.iterations));
+        return this.actions;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean[] expansions(Counters counters) {
+        int before = this.search.getExpandedNodes();
+        this.actions = this.search.optimise(this.current, new MarioTimer(MarioGame.maxTime));
+        counters.expandedNodes += this.search.getExpandedNodes() - before;
+        return this.actions;
+    }
+}
@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import engine.core.MarioAgent;
+import engine.core.MarioForwardModel;
+import engine.core.MarioGame;
+import engine.core.MarioSnapshot;
+import engine.core.MarioTimer;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+
+/**
+ * Latency distribution of one getActions call for every agent while it plays a reference level.
+ * The game is advanced with the returned actions between calls, outside of the measurement. Search
+ * agents use the normal wall clock budget so they are expected to stay close to MarioGame.maxTime.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AgentDecisionBenchmark {
+    @Param({"andySloane", "collector", "doNothing", "glennHartmann", "killer", "michal", "random",
+            "robinBaumgarten", "sergeyKarakovskiy", "sergeyPolikarpov", "spencerSchumann", "trondEllingsen"})
+    public String agentName;
+
+    private MarioWorld world;
+    private MarioForwardModel game;
+    private MarioSnapshot start;
+    private MarioAgent agent;
+    private MarioForwardModel current;
+    private boolean[] actions;
+
+    @Setup(Level.Trial)
+    public void setup() throws ReflectiveOperationException {
+        this.world = BenchmarkGame.createWorld(BenchmarkLevels.MIXED, 300, 0);
+        this.game = new MarioForwardModel(this.world);
+        this.start = this.game.snapshot();
+        this.agent = (MarioAgent) Class.forName("agents." + this.agentName + ".Agent").getDeclaredConstructor().newInstance();
+        this.agent.setSeed(0);
+        this.agent.initialize(new MarioForwardModel(this.world.clone()), new MarioTimer(MarioGame.maxTime));
+    }
+
+    @Setup(Level.Invocation)
+    public void nextTick() {
+        if (this.actions != null) {
+            this.world.update(this.actions);
+        }
+        if (this.world.gameStatus != GameStatus.RUNNING) {
+            this.game.restore(this.start);
+        }
+        this.current = new MarioForwardModel(this.world.clone());
+    }
+
+    @Benchmark
+    public boolean[] getActions() {
+        this.actions = this.agent.getActions(this.current, new MarioTimer(MarioGame.maxTime));
+        return this.actions;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.Random;
+
+import engine.core.MarioWorld;
+import engine.helper.MarioActions;
+import engine.sprites.Shell;
+
+/**
+ * Worlds and inputs shared by the benchmarks, everything is seeded so runs are comparable.
+ */
+public class BenchmarkGame {
+    /**
+     * Fixed sequence of inputs that mostly runs and jumps right and fires often
+     */
+    public static final boolean[][] ACTIONS = createActions(64);
+
+    private static boolean[][] createActions(int count) {
+        Random random = new Random(42);
+        boolean[][] actions = new boolean[count][MarioActions.numberOfActions()];
+        for (boolean[] action : actions) {
+            action[MarioActions.LEFT.getValue()] = random.nextInt(8) == 0;
+            action[MarioActions.RIGHT.getValue()] = random.nextInt(4) != 0;
+            action[MarioActions.DOWN.getValue()] = random.nextInt(10) == 0;
+            action[MarioActions.SPEED.getValue()] = random.nextInt(3) != 0;
+            action[MarioActions.JUMP.getValue()] = random.nextInt(3) == 0;
+        }
+        return actions;
+    }
+
+    /**
+     * Create a world on a reference level with fire mario, updated once so all the starting sprites exist
+     *
+     * @param level  the name of a level in BenchmarkLevels
+     * @param width  the width of the level in tiles
+     * @param shells the number of moving shells added around mario
+     * @return the world ready to be updated
+     */
+    public static MarioWorld createWorld(String level, int width, int shells) {
+        MarioWorld world = new MarioWorld(null);
+        world.visuals = false;
+        world.initializeLevel(BenchmarkLevels.getLevel(level, width), 1000000);
+        world.mario.isLarge = true;
+        world.mario.isFire = true;
+        world.update(new boolean[MarioActions.numberOfActions()]);
+        Random random = new Random(shells);
+        for (int i = 0; i < shells; i++) {
+            Shell shell = new Shell(false, 100 + random.nextInt(300), 40 + random.nextInt(180), random.nextInt(4), 0);
+            shell.facing = random.nextBoolean() ? 1 : -1;
+            world.addSprite(shell);
+        }
+        world.update(new boolean[MarioActions.numberOfActions()]);
+        return world;
+    }
+}
@@ -0,0 +1,106 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Reference levels used by the benchmarks. They are generated from a fixed seed so every run and
+ * every release measures exactly the same levels.
+ */
+public class BenchmarkLevels {
+    /**
+     * a flat ground with nothing on it
+     */
+    public static final String FLAT = "flat";
+    /**
+     * gaps, blocks, pipes, cannons, coins and enemies spread on the whole level
+     */
+    public static final String MIXED = "mixed";
+    /**
+     * 200 enemies packed in the first screens of a flat level
+     */
+    public static final String DENSE = "dense";
+
+    /**
+     * Get a reference level
+     *
+     * @param name  FLAT, MIXED or DENSE
+     * @param width the width of the level in tiles
+     * @return the level string
+     */
+    public static String getLevel(String name, int width) {
+        char[][] map = new char[width][16];
+        for (char[] column : map) {
+            Arrays.fill(column, '-');
+        }
+        Random random = new Random(width);
+        switch (name) {
+            case FLAT:
+                fillGround(map, random, false);
+                break;
+            case MIXED:
+                fillGround(map, random, true);
+                fillFeatures(map, random);
+                break;
+            case DENSE:
+                fillGround(map, random, false);
+                fillEnemies(map, random, 200);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown benchmark level " + name);
+        }
+        map[2][13] = 'M';
+        map[width - 3][13] = 'F';
+        StringBuilder level = new StringBuilder();
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < width; x++) {
+                level.append(map[x][y]);
+            }
+            level.append('\n');
+        }
+        return level.toString();
+    }
+
+    private static void fillGround(char[][] map, Random random, boolean gaps) {
+        for (int x = 0; x < map.length; x++) {
+            boolean gap = gaps && x > 10 && x < map.length - 10 && random.nextInt(12) == 0;
+            if (!gap) {
+                map[x][14] = 'X';
+                map[x][15] = 'X';
+            }
+        }
+    }
+
+    private static void fillFeatures(char[][] map, Random random) {
+        String features = "gGkKrRyYSC?Q@!12ULo%|#DSSoooggkk";
+        for (int i = 0; i < map.length / 2; i++) {
+            int x = 5 + random.nextInt(map.length - 10);
+            int y = 4 + random.nextInt(9);
+            map[x][y] = features.charAt(random.nextInt(features.length()));
+        }
+        for (int i = 0; i < map.length / 25; i++) {
+            int x = 8 + random.nextInt(map.length - 20);
+            int height = 2 + random.nextInt(3);
+            char c = random.nextBoolean() ? 't' : (random.nextBoolean() ? 'T' : '*');
+            for (int y = 14 - height; y < 14; y++) {
+                map[x][y] = c;
+                if (c != '*') {
+                    map[x + 1][y] = c;
+                }
+            }
+        }
+    }
+
+    private static void fillEnemies(char[][] map, Random random, int count) {
+        String enemies = "gGkKrRyYgk";
+        int area = Math.min(22, map.length - 12);
+        while (count > 0) {
+            int x = 6 + random.nextInt(area);
+            int y = 1 + random.nextInt(13);
+            if (map[x][y] == '-') {
+                map[x][y] = enemies.charAt(random.nextInt(enemies.length()));
+                count -= 1;
+            }
+        }
+    }
+}
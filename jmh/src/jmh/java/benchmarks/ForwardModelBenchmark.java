@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
+import engine.core.MarioWorld;
+
+/**
+ * Cost of copying forward model state for search: clone against snapshot, restore and undo, and a
+ * search node expansion done with each of them. The level width, from 150 to 10000 tiles, shows what scales with the level.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ForwardModelBenchmark {
+    @Param({"150", "600", "2400", "10000"})
+    public int width;
+
+    private MarioForwardModel model;
+    private MarioForwardModel undoModel;
+    private MarioSnapshot parent;
+    private MarioSnapshot scratch;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MarioWorld world = BenchmarkGame.createWorld(BenchmarkLevels.MIXED, this.width, 0);
+        this.model = new MarioForwardModel(world);
+        for (int i = 0; i < 40; i++) {
+            this.model.advance(BenchmarkGame.ACTIONS[i]);
+        }
+        this.parent = this.model.snapshot();
+        this.scratch = this.model.snapshot();
+        this.undoModel = this.model.clone();
+        this.undoModel.setUndoLimit(1);
+    }
+
+    private boolean[] nextAction() {
+        this.tick += 1;
+        return BenchmarkGame.ACTIONS[this.tick % BenchmarkGame.ACTIONS.length];
+    }
+
+    @Benchmark
+    public MarioForwardModel cloneModel() {
+        return this.model.clone();
+    }
+
+    @Benchmark
+    public MarioSnapshot snapshot() {
+        return this.model.snapshot(this.scratch);
+    }
+
+    @Benchmark
+    public MarioForwardModel restore() {
+        this.model.restore(this.parent);
+        return this.model;
+    }
+
+    @Benchmark
+    public MarioForwardModel expandWithClone() {
+        this.model.restore(this.parent);
+        MarioForwardModel child = this.model.clone();
+        child.advance(this.nextAction());
+        return child;
+    }
+
+    @Benchmark
+    public MarioSnapshot expandWithSnapshot() {
+        this.model.restore(this.parent);
+        this.model.advance(this.nextAction());
+        return this.model.snapshot(this.scratch);
+    }
+
+    @Benchmark
+    public MarioForwardModel advanceAndUndo() {
+        this.undoModel.advance(this.nextAction());
+        this.undoModel.undo();
+        return this.undoModel;
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import engine.core.MarioLevel;
+import engine.core.MarioWorld;
+
+/**
+ * Parsing a level string into a MarioLevel, and creating a whole world from it like every game does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LevelParseBenchmark {
+    @Param({BenchmarkLevels.FLAT, BenchmarkLevels.MIXED, BenchmarkLevels.DENSE})
+    public String level;
+    @Param({"150", "1000"})
+    public int width;
+
+    private String levelString;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.levelString = BenchmarkLevels.getLevel(this.level, this.width);
+    }
+
+    @Benchmark
+    public MarioLevel parse() {
+        return new MarioLevel(this.levelString, false);
+    }
+
+    @Benchmark
+    public MarioWorld initializeWorld() {
+        MarioWorld world = new MarioWorld(null);
+        world.visuals = false;
+        world.initializeLevel(this.levelString, 1000000);
+        return world;
+    }
+}
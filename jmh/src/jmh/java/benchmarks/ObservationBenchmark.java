@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
+
+/**
+ * Observation extraction for every detail level, repeated on the same state, after the state
+ * changed and through the allocating methods. restore is measured alone to be subtracted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ObservationBenchmark {
+    private static final int STATES = 8;
+
+    @Param({"0", "1", "2"})
+    public int detail;
+
+    private MarioForwardModel model;
+    private final MarioSnapshot[] states = new MarioSnapshot[STATES];
+    private int[][] buffer;
+    private int state;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.model = new MarioForwardModel(BenchmarkGame.createWorld(BenchmarkLevels.MIXED, 300, 0));
+        for (int i = 0; i < 40 + STATES; i++) {
+            this.model.advance(BenchmarkGame.ACTIONS[i]);
+            if (i >= 40) {
+                this.states[i - 40] = this.model.snapshot();
+            }
+        }
+        this.buffer = new int[this.model.obsGridWidth][this.model.obsGridHeight];
+    }
+
+    private void nextState() {
+        this.state = (this.state + 1) % STATES;
+        this.model.restore(this.states[this.state]);
+    }
+
+    @Benchmark
+    public int[][] sceneRepeated() {
+        return this.model.getMarioSceneObservation(this.detail, this.buffer);
+    }
+
+    @Benchmark
+    public int[][] enemiesRepeated() {
+        return this.model.getMarioEnemiesObservation(this.detail, this.buffer);
+    }
+
+    @Benchmark
+    public int[][] completeRepeated() {
+        return this.model.getMarioCompleteObservation(this.detail, this.detail, this.buffer);
+    }
+
+    @Benchmark
+    public int[][] completeAllocating() {
+        return this.model.getMarioCompleteObservation(this.detail, this.detail);
+    }
+
+    @Benchmark
+    public int[][] completeAfterChange() {
+        this.nextState();
+        return this.model.getMarioCompleteObservation(this.detail, this.detail, this.buffer);
+    }
+
+    @Benchmark
+    public MarioForwardModel restoreOnly() {
+        this.nextState();
+        return this.model;
+    }
+}
@@ -0,0 +1,57 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
+import engine.core.MarioWorld;
+import engine.helper.GameStatus;
+
+/**
+ * Ticks per second of MarioWorld.update. The gc profiler reports the allocation per tick, the dense
+ * level with shells stresses the shell and fireball collision checks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WorldUpdateBenchmark {
+    private static final int MAX_TICKS = 400;
+
+    @Param({BenchmarkLevels.FLAT, BenchmarkLevels.MIXED, BenchmarkLevels.DENSE})
+    public String level;
+    @Param({"0", "16"})
+    public int shells;
+
+    private MarioWorld world;
+    private MarioForwardModel model;
+    private MarioSnapshot start;
+    private int tick;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.world = BenchmarkGame.createWorld(this.level, 300, this.shells);
+        this.model = new MarioForwardModel(this.world);
+        this.start = this.model.snapshot();
+    }
+
+    @Benchmark
+    public float update() {
+        if (this.world.gameStatus != GameStatus.RUNNING || this.tick == MAX_TICKS) {
+            this.model.restore(this.start);
+            this.tick = 0;
+        }
+        this.world.update(BenchmarkGame.ACTIONS[this.tick % BenchmarkGame.ACTIONS.length]);
+        this.tick += 1;
+        return this.world.mario.x;
+    }
+}
@@ -23,6 +23,9 @@ public class GenerateLevel {
                 " Falls: " + result.getKillsByFall() + ")");
         System.out.println("Bricks: " + result.getNumDestroyedBricks() + " Jumps: " + result.getNumJumps() +
                 " Max X Jump: " + result.getMaxXJump() + " Max Air Time: " + result.getMaxJumpAirTime());
+        System.out.println("Agent Latency (ms): p50 " + result.getAgentLatency().getPercentile(50) / 1e6 +
+                " p99 " + result.getAgentLatency().getPercentile(99) / 1e6 + " max " + result.getAgentLatency().getMax() / 1e6 +
+                " Over Budget: " + result.getAgentOverruns());
         System.out.println("****************************************************************");
     }
 
@@ -1,6 +1,7 @@
 package agents.collector;
 
 import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
 import engine.core.MarioTimer;
 import engine.helper.GameStatus;
 
@@ -10,20 +11,22 @@ public class AStarTree {
     public SearchNode bestPosition;
     public SearchNode furthestPosition;
     float currentSearchStartingMarioXPos;
-    ArrayList<SearchNode> posPool;
-    ArrayList<int[]> visitedStates = new ArrayList<int[]>();
+    SearchNodeQueue posPool;
+    VisitedStateSet visitedStates = new VisitedStateSet();
     private boolean requireReplanning = false;
+    // number of nodes taken from the open list since the tree was created
+    public int expandedNodes = 0;
 
     private ArrayList<boolean[]> currentActionPlan;
     int ticksBeforeReplanning = 0;
     public int SearchedStates = 0;
     public int SearchedLose = 0;
-    private MarioForwardModel search(MarioTimer timer) {
+    private MarioSnapshot search(MarioTimer timer) {
         SearchNode current = bestPosition;
         boolean currentGood = false;
         int maxRight = 176;
         while (posPool.size() != 0
-                && ((bestPosition.sceneSnapshot.getMarioFloatPos()[0] - currentSearchStartingMarioXPos < maxRight) || !currentGood)
+                && ((bestPosition.marioX - currentSearchStartingMarioXPos < maxRight) || !currentGood)
                 && timer.getRemainingTime() > 0) {
             current = pickBestPos(posPool);
             if (current == null) {
@@ -34,31 +37,31 @@ public class AStarTree {
 
             if (realRemainingTime < 0) {
                 continue;
-            } else if (!current.isInVisitedList && isInVisited((int) current.sceneSnapshot.getMarioFloatPos()[0],
-                    (int) current.sceneSnapshot.getMarioFloatPos()[1], current.timeElapsed)) {
+            } else if (!current.isInVisitedList && visitedStates.contains((int) current.marioX,
+                    (int) current.marioY, current.timeElapsed)) {
                 realRemainingTime += Helper.visitedListPenalty;
                 current.isInVisitedList = true;
                 current.remainingTime = realRemainingTime;
                 current.remainingTimeEstimated = realRemainingTime;
-                posPool.add(current);
+                addToPool(current);
             } else if (realRemainingTime - current.remainingTimeEstimated > 0.1) {
                 // current item is not as good as anticipated. put it back in pool and look for best again
                 current.remainingTimeEstimated = realRemainingTime;
-                posPool.add(current);
+                addToPool(current);
             } else {
                 currentGood = true;
-                visited((int) current.sceneSnapshot.getMarioFloatPos()[0], (int) current.sceneSnapshot.getMarioFloatPos()[1], current.timeElapsed);
-                posPool.addAll(current.generateChildren());
+                visitedStates.add((int) current.marioX, (int) current.marioY, current.timeElapsed);
+                addToPool(current.generateChildren());
             }
             if (currentGood) {
                 if (bestPosition.getRemainingTime() > current.getRemainingTime())
                     bestPosition = current;
-                if (current.sceneSnapshot.getMarioFloatPos()[0] > furthestPosition.sceneSnapshot.getMarioFloatPos()[0])
+                if (current.marioX > furthestPosition.marioX)
                     furthestPosition = current;
             }
         }
-        if (current.sceneSnapshot.getMarioFloatPos()[0] - currentSearchStartingMarioXPos < maxRight
-                && furthestPosition.sceneSnapshot.getMarioFloatPos()[0] > bestPosition.sceneSnapshot.getMarioFloatPos()[0] + 20)
+        if (current.marioX - currentSearchStartingMarioXPos < maxRight
+                && furthestPosition.marioX > bestPosition.marioX + 20)
             // Couldnt plan till end of screen, take furthest
             bestPosition = furthestPosition;
 
@@ -69,14 +72,14 @@ public class AStarTree {
         SearchNode startPos = new SearchNode(null, repetitions, null);
         startPos.initializeRoot(model);
 
-        posPool = new ArrayList<SearchNode>();
+        posPool = new SearchNodeQueue();
         visitedStates.clear();
 
         ArrayList<SearchNode> tempPool = startPos.generateChildren();
 
         SearchedStates += tempPool.size();
 
-        posPool.addAll(tempPool);
+        addToPool(tempPool);
         currentSearchStartingMarioXPos = model.getMarioFloatPos()[0];
 
         bestPosition = startPos;
@@ -107,20 +110,30 @@ public class AStarTree {
         return actions;
     }
 
-    private SearchNode pickBestPos(ArrayList<SearchNode> posPool) {
-        SearchNode bestPos = null;
-        float bestPosCost = 10000000;
-        for (SearchNode current : posPool) {
-            //float currentCost = current.getRemainingTime() * 0.1f + current.timeElapsed * 0.10f - 10000 * current.getkilled(); // slightly bias towards furthest positions
-            float currentCost = - 10000 * current.getCoins() - 5000* current.ifwin();
-            //System.out.println("Mario killed: " + current.getkilled() + " CurrentCost: "+ currentCost);
-            if (currentCost < bestPosCost) {
-                bestPos = current;
-                bestPosCost = currentCost;
-            }
+    private float getCost(SearchNode current) {
+        //float currentCost = current.getRemainingTime() * 0.1f + current.timeElapsed * 0.10f - 10000 * current.getkilled(); // slightly bias towards furthest positions
+        float currentCost = - 10000 * current.getCoins() - 5000* current.ifwin();
+        //System.out.println("Mario killed: " + current.getkilled() + " CurrentCost: "+ currentCost);
+        return currentCost;
+    }
+
+    private void addToPool(SearchNode node) {
+        posPool.add(node, getCost(node));
+    }
+
+    private void addToPool(ArrayList<SearchNode> nodes) {
+        for (SearchNode node : nodes) {
+            addToPool(node);
+        }
+    }
+
+    private SearchNode pickBestPos(SearchNodeQueue posPool) {
+        // nodes costing 10000000 or more are never picked
+        if (posPool.size() == 0 || !(posPool.peekCost() < 10000000)) {
+            return null;
         }
-        posPool.remove(bestPos);
-        return bestPos;
+        expandedNodes++;
+        return posPool.poll();
     }
 
     public boolean[] optimise(MarioForwardModel model, MarioTimer timer) {
@@ -154,21 +167,4 @@ public class AStarTree {
         return action;
     }
 
-    private void visited(int x, int y, int t) {
-        visitedStates.add(new int[]{x, y, t});
-    }
-
-    private boolean isInVisited(int x, int y, int t) {
-        int timeDiff = 5;
-        int xDiff = 2;
-        int yDiff = 2;
-        for (int[] v : visitedStates) {
-            if (Math.abs(v[0] - x) < xDiff && Math.abs(v[1] - y) < yDiff && Math.abs(v[2] - t) < timeDiff
-                    && t >= v[2]) {
-                return true;
-            }
-        }
-        return false;
-    }
-
 }
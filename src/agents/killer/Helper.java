@@ -10,9 +10,9 @@ public class Helper {
     public static final int visitedListPenalty = 1500;
     public static final float maxMarioSpeed = 10.9090909f;
 
-    public static int getMarioDamage(MarioForwardModel model, MarioForwardModel prevModel) {
+    public static int getMarioDamage(MarioForwardModel model, int prevMarioMode) {
         int damage = 0;
-        if (prevModel.getMarioMode() > model.getMarioMode()) {
+        if (prevMarioMode > model.getMarioMode()) {
             damage += 1;
         }
         if (model.getGameStatus() == GameStatus.LOSE) {
@@ -75,7 +75,7 @@ public class Helper {
     public static boolean canJumpHigher(SearchNode node, boolean checkParent) {
         if (node.parentPos != null && checkParent && canJumpHigher(node.parentPos, false))
             return true;
-        return node.sceneSnapshot.mayMarioJump() || node.sceneSnapshot.getMarioCanJumpHigher();
+        return node.canJumpHigher;
     }
 
     public static ArrayList<boolean[]> createPossibleActions(SearchNode node) {
@@ -3,6 +3,7 @@ package agents.killer;
 import java.util.ArrayList;
 
 import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
 import engine.helper.GameStatus;
 
 public class SearchNode {
@@ -11,7 +12,17 @@ public class SearchNode {
     public float remainingTime = 0;
 
     public SearchNode parentPos = null;
-    public MarioForwardModel sceneSnapshot = null;
+    public MarioSnapshot sceneSnapshot = null;
+    // mario state at the snapshot, read once so the snapshot never needs to be restored for them
+    public float marioX, marioY, marioXA;
+    public int marioMode = 0;
+    public boolean canJumpHigher = false;
+    public GameStatus gameStatus = null;
+    // hash of the state at the snapshot, equal for nodes reaching the same state with other actions
+    public long stateHash = 0;
+    public int kills = 0;
+    // single forward model shared by the whole tree, each node restores its parent snapshot into it
+    private MarioForwardModel simulator = null;
     public int distanceFromOrigin = 0;
     public boolean hasBeenHurt = false;
     public boolean isInVisitedList = false;
@@ -32,20 +43,18 @@ public class SearchNode {
 
     public float estimateRemainingTimeChild(boolean[] action, int repetitions) {
         float[] childbehaviorDistanceAndSpeed = Helper.estimateMaximumForwardMovement(
-                this.sceneSnapshot.getMarioFloatVelocity()[0], action, repetitions);
-        return calcRemainingTime(this.sceneSnapshot.getMarioFloatPos()[0] + childbehaviorDistanceAndSpeed[0],
+                this.marioXA, action, repetitions);
+        return calcRemainingTime(this.marioX + childbehaviorDistanceAndSpeed[0],
                 childbehaviorDistanceAndSpeed[1]);
     }
 
     public SearchNode(boolean[] action, int repetitions, SearchNode parent) {
         this.parentPos = parent;
         if (parent != null) {
+            this.simulator = parent.simulator;
             this.remainingTimeEstimated = parent.estimateRemainingTimeChild(action, repetitions);
             this.distanceFromOrigin = parent.distanceFromOrigin + 1;
-            this.sceneSnapshot = parentPos.sceneSnapshot.clone();
-            for (int i = 0; i < repetitions; i++) {
-                this.sceneSnapshot.advance(action);
-            }
+            this.simulate(action, repetitions);
         }
         this.action = action;
         this.repetitions = repetitions;
@@ -57,19 +66,17 @@ public class SearchNode {
 
     public void initializeRoot(MarioForwardModel model) {
         if (this.parentPos == null) {
-            this.sceneSnapshot = model.clone();
+            this.simulator = model.clone();
+            this.takeSnapshot();
             this.remainingTimeEstimated = calcRemainingTime(model.getMarioFloatPos()[0], 0);
         }
     }
 
     public float simulatePos() {
-        this.sceneSnapshot = parentPos.sceneSnapshot.clone();
-        for (int i = 0; i < repetitions; i++) {
-            this.sceneSnapshot.advance(action);
-        }
-        int marioDamage = Helper.getMarioDamage(this.sceneSnapshot, this.parentPos.sceneSnapshot);
+        this.simulate(action, repetitions);
+        int marioDamage = Helper.getMarioDamage(this.simulator, this.parentPos.marioMode);
         remainingTime =
-                calcRemainingTime(this.sceneSnapshot.getMarioFloatPos()[0], this.sceneSnapshot.getMarioFloatVelocity()[0]) +
+                calcRemainingTime(this.marioX, this.marioXA) +
                         marioDamage * (1000000 - 100 * distanceFromOrigin);
         if (isInVisitedList)
             remainingTime += Helper.visitedListPenalty;
@@ -78,6 +85,30 @@ public class SearchNode {
         return remainingTime;
     }
 
+    private void simulate(boolean[] action, int repetitions) {
+        this.simulator.restore(this.parentPos.sceneSnapshot);
+        for (int i = 0; i < repetitions; i++) {
+            this.simulator.advance(action);
+        }
+        this.takeSnapshot();
+    }
+
+    private void takeSnapshot() {
+        if (this.sceneSnapshot == null) {
+            this.sceneSnapshot = this.simulator.snapshot();
+        } else {
+            this.simulator.snapshot(this.sceneSnapshot);
+        }
+        this.marioX = this.simulator.getMarioFloatPos()[0];
+        this.marioY = this.simulator.getMarioFloatPos()[1];
+        this.marioXA = this.simulator.getMarioFloatVelocity()[0];
+        this.marioMode = this.simulator.getMarioMode();
+        this.canJumpHigher = this.simulator.mayMarioJump() || this.simulator.getMarioCanJumpHigher();
+        this.gameStatus = this.simulator.getGameStatus();
+        this.stateHash = this.sceneSnapshot.getStateHash();
+        this.kills = this.simulator.getKillsTotal();
+    }
+
     public ArrayList<SearchNode> generateChildren() {
         ArrayList<SearchNode> list = new ArrayList<SearchNode>();
         ArrayList<boolean[]> possibleActions = Helper.createPossibleActions(this);
@@ -94,21 +125,21 @@ public class SearchNode {
         if (this.sceneSnapshot == null) {
             return false;
         }
-        return this.sceneSnapshot.getGameStatus() != GameStatus.RUNNING;
+        return this.gameStatus != GameStatus.RUNNING;
     }
 
     public int getkilled() {
         if (this.sceneSnapshot == null) {
             return 0;
         }
-        return this.sceneSnapshot.getKillsTotal();
+        return this.kills;
     }
 
     public int ifwin() {
         if (this.sceneSnapshot == null) {
             return 0;
         }
-        if(this.sceneSnapshot.getGameStatus() == GameStatus.WIN){
+        if(this.gameStatus == GameStatus.WIN){
             return 1;
         }
         return 0;
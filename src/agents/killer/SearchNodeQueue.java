@@ -0,0 +1,87 @@
+package agents.killer;
+
+import java.util.Arrays;
+
+/**
+ * Open list of the A* search, a 4-ary min heap on the cost given when a node is added. Nodes with
+ * the same cost come out in the order they were added. The search takes a node out before changing
+ * it, so the cost of a queued node never changes and no decrease-key is needed.
+ */
+class SearchNodeQueue {
+    private static final int ARITY = 4;
+
+    private SearchNode[] nodes = new SearchNode[64];
+    private float[] costs = new float[64];
+    private long[] order = new long[64];
+    private int size = 0;
+    private long added = 0;
+
+    public int size() {
+        return size;
+    }
+
+    public void add(SearchNode node, float cost) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            costs = Arrays.copyOf(costs, size * 2);
+            order = Arrays.copyOf(order, size * 2);
+        }
+        siftUp(size++, node, cost, added++);
+    }
+
+    public float peekCost() {
+        return costs[0];
+    }
+
+    public SearchNode poll() {
+        if (size == 0)
+            return null;
+        SearchNode result = nodes[0];
+        int last = --size;
+        SearchNode node = nodes[last];
+        nodes[last] = null;
+        if (last != 0)
+            siftDown(0, node, costs[last], order[last]);
+        return result;
+    }
+
+    private static boolean before(float costA, long orderA, float costB, long orderB) {
+        return costA < costB || (costA == costB && orderA < orderB);
+    }
+
+    private void siftUp(int k, SearchNode node, float cost, long added) {
+        while (k > 0) {
+            int parent = (k - 1) / ARITY;
+            if (!before(cost, added, costs[parent], order[parent]))
+                break;
+            set(k, nodes[parent], costs[parent], order[parent]);
+            k = parent;
+        }
+        set(k, node, cost, added);
+    }
+
+    private void siftDown(int k, SearchNode node, float cost, long added) {
+        while (true) {
+            int first = k * ARITY + 1;
+            if (first >= size)
+                break;
+            int best = first;
+            int end = Math.min(first + ARITY, size);
+            for (int child = first + 1; child < end; child++) {
+                if (before(costs[child], order[child], costs[best], order[best]))
+                    best = child;
+            }
+            if (!before(costs[best], order[best], cost, added))
+                break;
+            set(k, nodes[best], costs[best], order[best]);
+            k = best;
+        }
+        set(k, node, cost, added);
+    }
+
+    private void set(int k, SearchNode node, float cost, long added) {
+        nodes[k] = node;
+        costs[k] = cost;
+        order[k] = added;
+    }
+}
@@ -0,0 +1,109 @@
+package agents.killer;
+
+import java.util.Arrays;
+
+/**
+ * Positions and times the A* search already expanded. A state is visited when a stored state is less
+ * than 2 pixels away on both axes and at most 4 ticks earlier. States are grouped in cells of 2 by 2
+ * pixels and 5 ticks held in an open addressing table, so a lookup only checks the few cells the
+ * tolerance can reach instead of every stored state.
+ */
+class VisitedStateSet {
+    private static final int X_DIFF = 2;
+    private static final int Y_DIFF = 2;
+    private static final int TIME_DIFF = 5;
+
+    // cell keys of the open addressing table, a slot is empty when its head is 0
+    private long[] keys = new long[256];
+    // index + 1 of the last state added to the cell of each slot
+    private int[] heads = new int[256];
+    private int cells = 0;
+
+    // stored states, each one links to the previous state of the same cell with next
+    private int[] xs = new int[256];
+    private int[] ys = new int[256];
+    private int[] times = new int[256];
+    private int[] next = new int[256];
+    private int size = 0;
+
+    public void clear() {
+        if (cells > 0) {
+            Arrays.fill(heads, 0);
+        }
+        cells = 0;
+        size = 0;
+    }
+
+    public void add(int x, int y, int t) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+        if (2 * (cells + 1) > keys.length) {
+            grow();
+        }
+        long key = getKey(Math.floorDiv(x, X_DIFF), Math.floorDiv(y, Y_DIFF), Math.floorDiv(t, TIME_DIFF));
+        int slot = findSlot(key);
+        if (heads[slot] == 0) {
+            keys[slot] = key;
+            cells++;
+        }
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = t;
+        next[size] = heads[slot];
+        heads[slot] = ++size;
+    }
+
+    public boolean contains(int x, int y, int t) {
+        int minCellX = Math.floorDiv(x - X_DIFF + 1, X_DIFF);
+        int maxCellX = Math.floorDiv(x + X_DIFF - 1, X_DIFF);
+        int minCellY = Math.floorDiv(y - Y_DIFF + 1, Y_DIFF);
+        int maxCellY = Math.floorDiv(y + Y_DIFF - 1, Y_DIFF);
+        int minCellT = Math.floorDiv(t - TIME_DIFF + 1, TIME_DIFF);
+        int maxCellT = Math.floorDiv(t, TIME_DIFF);
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                for (int cellT = minCellT; cellT <= maxCellT; cellT++) {
+                    int slot = findSlot(getKey(cellX, cellY, cellT));
+                    for (int i = heads[slot]; i != 0; i = next[i - 1]) {
+                        if (Math.abs(xs[i - 1] - x) < X_DIFF && Math.abs(ys[i - 1] - y) < Y_DIFF
+                                && Math.abs(times[i - 1] - t) < TIME_DIFF && t >= times[i - 1]) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long getKey(int cellX, int cellY, int cellT) {
+        return ((long) cellX << 42) ^ ((long) (cellY & 0x1FFFFF) << 21) ^ (cellT & 0x1FFFFF);
+    }
+
+    private int findSlot(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (heads[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldHeads[i] != 0) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                heads[slot] = oldHeads[i];
+            }
+        }
+    }
+}
@@ -9,11 +9,17 @@ import engine.core.MarioTimer;
 
 public class Agent implements MarioAgent {
     private Random rnd;
+    private Long seed = null;
     private ArrayList<boolean[]> choices;
 
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     @Override
     public void initialize(MarioForwardModel model, MarioTimer timer) {
-        rnd = new Random();
+        rnd = seed != null ? new Random(seed) : new Random();
         choices = new ArrayList<>();
         //right run
         choices.add(new boolean[]{false, true, false, true, false});
@@ -1,80 +1,235 @@
 package agents.robinBaumgarten;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ForkJoinTask;
 
 import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
 import engine.core.MarioTimer;
 import engine.helper.GameStatus;
 
 public class AStarTree {
     public SearchNode bestPosition;
     public SearchNode furthestPosition;
+    // node the current search started from
+    private SearchNode rootPosition;
     float currentSearchStartingMarioXPos;
-    ArrayList<SearchNode> posPool;
-    ArrayList<int[]> visitedStates = new ArrayList<int[]>();
+    SearchNodeQueue posPool;
+    VisitedStateSet visitedStates = new VisitedStateSet();
+    TranspositionTable transpositions = new TranspositionTable(13);
     private boolean requireReplanning = false;
+    // number of nodes taken from the open list since the tree was created
+    public int expandedNodes = 0;
 
     private ArrayList<boolean[]> currentActionPlan;
     int ticksBeforeReplanning = 0;
 
-    private MarioForwardModel search(MarioTimer timer) {
+    // number of nodes simulated at the same time, each slot of a batch has its own forward model
+    private final int threads;
+    private final MarioForwardModel[] simulators;
+    private final ArrayList<SearchNode> batch = new ArrayList<SearchNode>();
+    private final float[] batchRemainingTimes;
+
+    public AStarTree() {
+        this(1);
+    }
+
+    /**
+     * Create a tree that simulates the best nodes of the open list in batches. The nodes of a batch
+     * are simulated at the same time on the pool of the calling thread, or on the common pool, and
+     * are then expanded in order on the calling thread. Every node of a batch uses the timer like one
+     * search iteration. Batches are picked before the children of their nodes are known, so the plan
+     * can differ from the one found with a single thread.
+     *
+     * @param threads the number of nodes in a batch, 1 simulates every node on the calling thread
+     */
+    public AStarTree(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.threads = threads;
+        this.simulators = new MarioForwardModel[threads > 1 ? threads : 0];
+        this.batchRemainingTimes = new float[threads];
+    }
+
+    private MarioSnapshot search(MarioTimer timer) {
         SearchNode current = bestPosition;
         boolean currentGood = false;
         int maxRight = 176;
         while (posPool.size() != 0
-                && ((bestPosition.sceneSnapshot.getMarioFloatPos()[0] - currentSearchStartingMarioXPos < maxRight) || !currentGood)
+                && ((bestPosition.marioX - currentSearchStartingMarioXPos < maxRight) || !currentGood)
                 && timer.getRemainingTime() > 0) {
             current = pickBestPos(posPool);
             if (current == null) {
                 return null;
             }
-            currentGood = false;
-            float realRemainingTime = current.simulatePos();
-
-            if (realRemainingTime < 0) {
-                continue;
-            } else if (!current.isInVisitedList && isInVisited((int) current.sceneSnapshot.getMarioFloatPos()[0],
-                    (int) current.sceneSnapshot.getMarioFloatPos()[1], current.timeElapsed)) {
-                realRemainingTime += Helper.visitedListPenalty;
-                current.isInVisitedList = true;
-                current.remainingTime = realRemainingTime;
-                current.remainingTimeEstimated = realRemainingTime;
-                posPool.add(current);
-            } else if (realRemainingTime - current.remainingTimeEstimated > 0.1) {
-                // current item is not as good as anticipated. put it back in pool and look for best again
-                current.remainingTimeEstimated = realRemainingTime;
-                posPool.add(current);
+            if (threads == 1) {
+                currentGood = expand(current, current.simulatePos());
             } else {
-                currentGood = true;
-                visited((int) current.sceneSnapshot.getMarioFloatPos()[0], (int) current.sceneSnapshot.getMarioFloatPos()[1], current.timeElapsed);
-                posPool.addAll(current.generateChildren());
-            }
-            if (currentGood) {
-                if (bestPosition.getRemainingTime() > current.getRemainingTime())
-                    bestPosition = current;
-                if (current.sceneSnapshot.getMarioFloatPos()[0] > furthestPosition.sceneSnapshot.getMarioFloatPos()[0])
-                    furthestPosition = current;
+                simulateBatch(current, timer);
+                for (int i = 0; i < batch.size(); i++) {
+                    current = batch.get(i);
+                    currentGood = expand(current, batchRemainingTimes[i]);
+                }
             }
         }
-        if (current.sceneSnapshot.getMarioFloatPos()[0] - currentSearchStartingMarioXPos < maxRight
-                && furthestPosition.sceneSnapshot.getMarioFloatPos()[0] > bestPosition.sceneSnapshot.getMarioFloatPos()[0] + 20)
+        if (current.marioX - currentSearchStartingMarioXPos < maxRight
+                && furthestPosition.marioX > bestPosition.marioX + 20)
             // Couldnt plan till end of screen, take furthest
             bestPosition = furthestPosition;
 
         return current.sceneSnapshot;
     }
 
+    private boolean expand(SearchNode current, float realRemainingTime) {
+        boolean currentGood = false;
+        if (realRemainingTime < 0) {
+            return false;
+        } else if (transpositions.contains(current.stateHash)) {
+            // the same state was already expanded after other actions
+            return false;
+        } else if (!current.isInVisitedList && visitedStates.contains((int) current.marioX,
+                (int) current.marioY, current.timeElapsed)) {
+            realRemainingTime += Helper.visitedListPenalty;
+            current.isInVisitedList = true;
+            current.remainingTime = realRemainingTime;
+            current.remainingTimeEstimated = realRemainingTime;
+            addToPool(current);
+        } else if (realRemainingTime - current.remainingTimeEstimated > 0.1) {
+            // current item is not as good as anticipated. put it back in pool and look for best again
+            current.remainingTimeEstimated = realRemainingTime;
+            addToPool(current);
+        } else {
+            currentGood = true;
+            visitedStates.add((int) current.marioX, (int) current.marioY, current.timeElapsed);
+            transpositions.add(current.stateHash, current.distanceFromOrigin);
+            addToPool(current.generateChildren());
+        }
+        if (currentGood) {
+            updateBestPositions(current);
+        }
+        return currentGood;
+    }
+
+    private void updateBestPositions(SearchNode current) {
+        if (bestPosition.getRemainingTime() > current.getRemainingTime())
+            bestPosition = current;
+        if (current.marioX > furthestPosition.marioX)
+            furthestPosition = current;
+    }
+
+    private void simulateBatch(SearchNode first, MarioTimer timer) {
+        batch.clear();
+        batch.add(first);
+        while (batch.size() < threads && posPool.size() != 0 && timer.getRemainingTime() > 0) {
+            SearchNode next = pickBestPos(posPool);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        // the first node is simulated on this thread while the others run in the pool
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[batch.size()];
+        for (int i = 1; i < batch.size(); i++) {
+            int slot = i;
+            tasks[i] = ForkJoinTask.adapt(() -> simulateSlot(slot)).fork();
+        }
+        simulateSlot(0);
+        for (int i = 1; i < batch.size(); i++) {
+            tasks[i].join();
+        }
+    }
+
+    private void simulateSlot(int slot) {
+        batchRemainingTimes[slot] = batch.get(slot).simulatePos(simulators[slot]);
+    }
+
     private void startSearch(MarioForwardModel model, int repetitions) {
         SearchNode startPos = new SearchNode(null, repetitions, null);
         startPos.initializeRoot(model);
 
-        posPool = new ArrayList<SearchNode>();
+        posPool = new SearchNodeQueue();
         visitedStates.clear();
-        posPool.addAll(startPos.generateChildren());
+        transpositions.clear();
+        for (int i = 0; i < simulators.length; i++) {
+            simulators[i] = model.clone();
+        }
+        addToPool(startPos.generateChildren());
         currentSearchStartingMarioXPos = model.getMarioFloatPos()[0];
 
         bestPosition = startPos;
         furthestPosition = startPos;
+        rootPosition = startPos;
+    }
+
+    /**
+     * Continue the previous search from the node the plan reaches after some ticks, instead of
+     * starting a new one. The nodes below that node keep their simulated snapshots, the open list keeps
+     * the ones below it and the expanded ones are remembered again as visited. The node is only used
+     * when its state is the same as the model, otherwise a new search is needed.
+     *
+     * @param model the model after the first ticks of the plan were simulated
+     * @param ticks the number of ticks of the plan that were simulated
+     * @return true if the search continues from the node, false if nothing was changed
+     */
+    private boolean reuseSearch(MarioForwardModel model, int ticks) {
+        if (rootPosition == null || bestPosition == null) {
+            return false;
+        }
+        SearchNode newRoot = bestPosition;
+        while (newRoot.parentPos != null && newRoot.timeElapsed - rootPosition.timeElapsed > ticks) {
+            newRoot = newRoot.parentPos;
+        }
+        if (newRoot == rootPosition || newRoot.timeElapsed - rootPosition.timeElapsed != ticks
+                || newRoot.stateHash != model.snapshot().getStateHash()) {
+            return false;
+        }
+
+        ArrayList<SearchNode> kept = new ArrayList<SearchNode>();
+        while (posPool.size() != 0) {
+            SearchNode node = posPool.poll();
+            if (isBelow(node, newRoot)) {
+                kept.add(node);
+            }
+        }
+        visitedStates.clear();
+        transpositions.clear();
+        bestPosition = newRoot;
+        furthestPosition = newRoot;
+        currentSearchStartingMarioXPos = newRoot.marioX;
+
+        // count time and depth from the new root again, then the expanded nodes above the open ones
+        // are visited and can be the best position like in a new search
+        int rootTime = newRoot.timeElapsed;
+        int rootDistance = newRoot.distanceFromOrigin;
+        HashSet<SearchNode> expanded = new HashSet<SearchNode>();
+        for (SearchNode node : kept) {
+            node.timeElapsed -= rootTime;
+            node.distanceFromOrigin -= rootDistance;
+            for (SearchNode parent = node.parentPos; parent != newRoot && expanded.add(parent); parent = parent.parentPos) {
+                parent.timeElapsed -= rootTime;
+                parent.distanceFromOrigin -= rootDistance;
+                visitedStates.add((int) parent.marioX, (int) parent.marioY, parent.timeElapsed);
+                transpositions.add(parent.stateHash, parent.distanceFromOrigin);
+                updateBestPositions(parent);
+            }
+            addToPool(node);
+        }
+        newRoot.timeElapsed = 0;
+        newRoot.distanceFromOrigin = 0;
+        newRoot.parentPos = null;
+        rootPosition = newRoot;
+        return true;
+    }
+
+    private static boolean isBelow(SearchNode node, SearchNode root) {
+        for (SearchNode parent = node.parentPos; parent != null; parent = parent.parentPos) {
+            if (parent == root) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private ArrayList<boolean[]> extractPlan() {
@@ -100,18 +255,27 @@ public class AStarTree {
         return actions;
     }
 
-    private SearchNode pickBestPos(ArrayList<SearchNode> posPool) {
-        SearchNode bestPos = null;
-        float bestPosCost = 10000000;
-        for (SearchNode current : posPool) {
-            float currentCost = current.getRemainingTime() + current.timeElapsed * 0.90f; // slightly bias towards furthest positions
-            if (currentCost < bestPosCost) {
-                bestPos = current;
-                bestPosCost = currentCost;
-            }
+    private float getCost(SearchNode current) {
+        return current.getRemainingTime() + current.timeElapsed * 0.90f; // slightly bias towards furthest positions
+    }
+
+    private void addToPool(SearchNode node) {
+        posPool.add(node, getCost(node));
+    }
+
+    private void addToPool(ArrayList<SearchNode> nodes) {
+        for (SearchNode node : nodes) {
+            addToPool(node);
         }
-        posPool.remove(bestPos);
-        return bestPos;
+    }
+
+    private SearchNode pickBestPos(SearchNodeQueue posPool) {
+        // nodes costing 10000000 or more are never picked
+        if (posPool.size() == 0 || !(posPool.peekCost() < 10000000)) {
+            return null;
+        }
+        expandedNodes++;
+        return posPool.poll();
     }
 
     public boolean[] optimise(MarioForwardModel model, MarioTimer timer) {
@@ -131,7 +295,9 @@ public class AStarTree {
             for (int i = 0; i < planAhead; i++) {
                 model.advance(currentActionPlan.get(i));
             }
-            startSearch(model, stepsPerSearch);
+            if (!reuseSearch(model, planAhead)) {
+                startSearch(model, stepsPerSearch);
+            }
             ticksBeforeReplanning = planAhead;
         }
         if (model.getGameStatus() == GameStatus.LOSE) {
@@ -145,21 +311,4 @@ public class AStarTree {
         return action;
     }
 
-    private void visited(int x, int y, int t) {
-        visitedStates.add(new int[]{x, y, t});
-    }
-
-    private boolean isInVisited(int x, int y, int t) {
-        int timeDiff = 5;
-        int xDiff = 2;
-        int yDiff = 2;
-        for (int[] v : visitedStates) {
-            if (Math.abs(v[0] - x) < xDiff && Math.abs(v[1] - y) < yDiff && Math.abs(v[2] - t) < timeDiff
-                    && t >= v[2]) {
-                return true;
-            }
-        }
-        return false;
-    }
-
 }
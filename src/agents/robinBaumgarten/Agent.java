@@ -11,11 +11,26 @@ import engine.helper.MarioActions;
 public class Agent implements MarioAgent {
     private boolean[] action;
     private AStarTree tree;
+    private final int threads;
+
+    public Agent() {
+        this(1);
+    }
+
+    /**
+     * Create an agent that simulates several search nodes at the same time
+     *
+     * @param threads the number of nodes simulated at the same time
+     * @see AStarTree#AStarTree(int)
+     */
+    public Agent(int threads) {
+        this.threads = threads;
+    }
 
     @Override
     public void initialize(MarioForwardModel model, MarioTimer timer) {
         this.action = new boolean[MarioActions.numberOfActions()];
-        this.tree = new AStarTree();
+        this.tree = new AStarTree(this.threads);
     }
 
     @Override
@@ -3,6 +3,7 @@ package agents.robinBaumgarten;
 import java.util.ArrayList;
 
 import engine.core.MarioForwardModel;
+import engine.core.MarioSnapshot;
 import engine.helper.GameStatus;
 
 public class SearchNode {
@@ -11,7 +12,16 @@ public class SearchNode {
     public float remainingTime = 0;
 
     public SearchNode parentPos = null;
-    public MarioForwardModel sceneSnapshot = null;
+    public MarioSnapshot sceneSnapshot = null;
+    // mario state at the snapshot, read once so the snapshot never needs to be restored for them
+    public float marioX, marioY, marioXA;
+    public int marioMode = 0;
+    public boolean canJumpHigher = false;
+    public GameStatus gameStatus = null;
+    // hash of the state at the snapshot, equal for nodes reaching the same state with other actions
+    public long stateHash = 0;
+    // single forward model shared by the whole tree, each node restores its parent snapshot into it
+    private MarioForwardModel simulator = null;
     public int distanceFromOrigin = 0;
     public boolean hasBeenHurt = false;
     public boolean isInVisitedList = false;
@@ -32,14 +42,15 @@ public class SearchNode {
 
     public float estimateRemainingTimeChild(boolean[] action, int repetitions) {
         float[] childbehaviorDistanceAndSpeed = Helper.estimateMaximumForwardMovement(
-                this.sceneSnapshot.getMarioFloatVelocity()[0], action, repetitions);
-        return calcRemainingTime(this.sceneSnapshot.getMarioFloatPos()[0] + childbehaviorDistanceAndSpeed[0],
+                this.marioXA, action, repetitions);
+        return calcRemainingTime(this.marioX + childbehaviorDistanceAndSpeed[0],
                 childbehaviorDistanceAndSpeed[1]);
     }
 
     public SearchNode(boolean[] action, int repetitions, SearchNode parent) {
         this.parentPos = parent;
         if (parent != null) {
+            this.simulator = parent.simulator;
             this.remainingTimeEstimated = parent.estimateRemainingTimeChild(action, repetitions);
             this.distanceFromOrigin = parent.distanceFromOrigin + 1;
         }
@@ -53,19 +64,27 @@ public class SearchNode {
 
     public void initializeRoot(MarioForwardModel model) {
         if (this.parentPos == null) {
-            this.sceneSnapshot = model.clone();
+            this.simulator = model.clone();
+            this.takeSnapshot(this.simulator);
             this.remainingTimeEstimated = calcRemainingTime(model.getMarioFloatPos()[0], 0);
         }
     }
 
     public float simulatePos() {
-        this.sceneSnapshot = parentPos.sceneSnapshot.clone();
-        for (int i = 0; i < repetitions; i++) {
-            this.sceneSnapshot.advance(action);
-        }
-        int marioDamage = Helper.getMarioDamage(this.sceneSnapshot, this.parentPos.sceneSnapshot);
+        return this.simulatePos(this.simulator);
+    }
+
+    /**
+     * Simulate the node on another forward model, used to simulate several nodes at the same time
+     *
+     * @param simulator a clone of the model the search started from, only used by one thread at a time
+     * @return the remaining time of the node, same as simulatePos()
+     */
+    public float simulatePos(MarioForwardModel simulator) {
+        this.simulate(simulator, action, repetitions);
+        int marioDamage = Helper.getMarioDamage(simulator, this.parentPos.marioMode);
         remainingTime =
-                calcRemainingTime(this.sceneSnapshot.getMarioFloatPos()[0], this.sceneSnapshot.getMarioFloatVelocity()[0]) +
+                calcRemainingTime(this.marioX, this.marioXA) +
                         marioDamage * (1000000 - 100 * distanceFromOrigin);
         if (isInVisitedList)
             remainingTime += Helper.visitedListPenalty;
@@ -74,6 +93,29 @@ public class SearchNode {
         return remainingTime;
     }
 
+    private void simulate(MarioForwardModel simulator, boolean[] action, int repetitions) {
+        simulator.restore(this.parentPos.sceneSnapshot);
+        for (int i = 0; i < repetitions; i++) {
+            simulator.advance(action);
+        }
+        this.takeSnapshot(simulator);
+    }
+
+    private void takeSnapshot(MarioForwardModel simulator) {
+        if (this.sceneSnapshot == null) {
+            this.sceneSnapshot = simulator.snapshot();
+        } else {
+            simulator.snapshot(this.sceneSnapshot);
+        }
+        this.marioX = simulator.getMarioFloatPos()[0];
+        this.marioY = simulator.getMarioFloatPos()[1];
+        this.marioXA = simulator.getMarioFloatVelocity()[0];
+        this.marioMode = simulator.getMarioMode();
+        this.canJumpHigher = simulator.mayMarioJump() || simulator.getMarioCanJumpHigher();
+        this.gameStatus = simulator.getGameStatus();
+        this.stateHash = this.sceneSnapshot.getStateHash();
+    }
+
     public ArrayList<SearchNode> generateChildren() {
         ArrayList<SearchNode> list = new ArrayList<SearchNode>();
         ArrayList<boolean[]> possibleActions = Helper.createPossibleActions(this);
@@ -90,7 +132,7 @@ public class SearchNode {
         if (this.sceneSnapshot == null) {
             return false;
         }
-        return this.sceneSnapshot.getGameStatus() != GameStatus.RUNNING;
+        return this.gameStatus != GameStatus.RUNNING;
     }
 
     private float maxForwardMovement(float initialSpeed, int ticks) {
@@ -0,0 +1,42 @@
+package agents.robinBaumgarten;
+
+import java.util.Arrays;
+
+/**
+ * Bounded table of the states the A* search already expanded, keyed by MarioSnapshot.getStateHash.
+ * Different action orders often lead to the same state, the table lets the search drop the copies
+ * instead of simulating their children again. Every hash has a single slot, when two states need the
+ * same slot the one closer to the root is kept since more of the search hangs below it.
+ */
+class TranspositionTable {
+    private final long[] hashes;
+    // distance from the root + 1 of the state in each slot, 0 for an empty slot
+    private final int[] depths;
+    private final int shift;
+
+    /**
+     * @param bits the table has 2^bits slots
+     */
+    public TranspositionTable(int bits) {
+        this.hashes = new long[1 << bits];
+        this.depths = new int[1 << bits];
+        this.shift = 64 - bits;
+    }
+
+    public void clear() {
+        Arrays.fill(depths, 0);
+    }
+
+    public boolean contains(long hash) {
+        int slot = (int) (hash >>> shift);
+        return depths[slot] != 0 && hashes[slot] == hash;
+    }
+
+    public void add(long hash, int depth) {
+        int slot = (int) (hash >>> shift);
+        if (depths[slot] == 0 || depth < depths[slot]) {
+            hashes[slot] = hash;
+            depths[slot] = depth + 1;
+        }
+    }
+}
@@ -62,7 +62,8 @@ public class Agent implements MarioAgent {
     private boolean force_long_jump_forward = false;
     private boolean is_first_action_when_hole_is_detected = true;
 
-    private static final Random random = new Random();
+    private final Random random = new Random();
+    private Long seed = null;
 
     /**********/
 
@@ -131,10 +132,20 @@ public class Agent implements MarioAgent {
         }
     }
 
+    @Override
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     @Override
     public void initialize(MarioForwardModel model, MarioTimer timer) {
         cbrn = new CyberNeuron(numberOfInputs, numberOfOutputs);
         detector_of_holes = new CyberNeuron(detector_of_holes_numberOfInputs, detector_of_holes_numberOfOutputs);
+        if (seed != null) {
+            random.setSeed(seed);
+            cbrn.setSeed(seed + 1);
+            detector_of_holes.setSeed(seed + 2);
+        }
         action_in_progress = false;
         count_of_action_in_progress = 0;
         buffer_is_full = false;
@@ -72,6 +72,10 @@ public class CyberNeuron {
     }
 
 
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
     public CyberNeuron getNewInstance() {
         return new CyberNeuron(sbox.length * num_bits_in_input / parallel_inputs, outputs.length);
     }
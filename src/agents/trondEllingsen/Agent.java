@@ -29,12 +29,16 @@ public class Agent implements MarioAgent {
     private int jumpCount = 0, jumpSize = -1;
     private float prevY = 0;
     private boolean[] action;
+    private float[] enemies;
+    private int[][] scene;
 
     @Override
     public void initialize(MarioForwardModel model, MarioTimer timer) {
         action = new boolean[MarioActions.numberOfActions()];
         action[MarioActions.RIGHT.getValue()] = true;
         action[MarioActions.SPEED.getValue()] = true;
+        enemies = new float[3 * 16];
+        scene = new int[model.obsGridWidth][model.obsGridHeight];
     }
 
     private int getWallHeight(int tileX, int tileY, int[][] levelScene) {
@@ -55,9 +59,13 @@ public class Agent implements MarioAgent {
     }
 
     private boolean enemyInRange(MarioForwardModel e, Rectangle r) {
-        for (int i = 0; i < e.getEnemiesFloatPos().length; i += 3) {
-            if (r.contains(e.getEnemiesFloatPos()[i + 1] - e.getMarioFloatPos()[0],
-                    e.getMarioFloatPos()[1] - e.getEnemiesFloatPos()[i + 2])) {
+        int count = e.getEnemiesFloatPos(enemies);
+        if (3 * count > enemies.length) {
+            enemies = new float[3 * count];
+            e.getEnemiesFloatPos(enemies);
+        }
+        for (int i = 0; i < 3 * count; i += 3) {
+            if (r.contains(enemies[i + 1] - e.getMarioX(), e.getMarioY() - enemies[i + 2])) {
                 return true;
             }
         }
@@ -72,16 +80,15 @@ public class Agent implements MarioAgent {
 
     @Override
     public boolean[] getActions(MarioForwardModel model, MarioTimer timer) {
-        final float marioSpeed = model.getMarioFloatVelocity()[0];
+        final float marioSpeed = model.getMarioXVelocity();
         final boolean dangerOfEnemy = enemyInRange(model, new Rectangle(-13, -57, 105, 87));
         final boolean dangerOfEnemyAbove = enemyInRange(model, new Rectangle(-28, 28, 58, 45));
-        final boolean dangerOfGap = dangerOfGap(model.getMarioScreenTilePos()[0], model.getMarioScreenTilePos()[1],
-                model.getScreenSceneObservation());
+        final int[][] levelScene = model.getScreenSceneObservation(1, scene);
+        final boolean dangerOfGap = dangerOfGap(model.getMarioScreenTileX(), model.getMarioScreenTileY(), levelScene);
         if ((model.isMarioOnGround() || model.mayMarioJump()) && !jumpType.equals(JumpType.NONE)) {
             setJump(JumpType.NONE, -1);
         } else if (model.mayMarioJump()) {
-            final int wallHeight = getWallHeight(model.getMarioScreenTilePos()[0], model.getMarioScreenTilePos()[1],
-                    model.getScreenSceneObservation());
+            final int wallHeight = getWallHeight(model.getMarioScreenTileX(), model.getMarioScreenTileY(), levelScene);
             if (dangerOfGap && marioSpeed > 0) {
                 setJump(JumpType.GAP, marioSpeed < 6 ? (int) (9 - marioSpeed) : 1);
             } else if (marioSpeed <= 1 && !dangerOfEnemyAbove && wallHeight > 0) {
@@ -92,12 +99,12 @@ public class Agent implements MarioAgent {
         } else {
             jumpCount++;
         }
-        final boolean isFalling = prevY < model.getMarioFloatPos()[1] && jumpType.equals(JumpType.NONE);
+        final boolean isFalling = prevY < model.getMarioY() && jumpType.equals(JumpType.NONE);
         action[MarioActions.LEFT.getValue()] = isFalling && ((dangerOfEnemy && dangerOfEnemyAbove) || dangerOfGap);
         action[MarioActions.RIGHT.getValue()] = !isFalling && !(dangerOfEnemyAbove && jumpType == JumpType.WALL);
         action[MarioActions.JUMP.getValue()] = !jumpType.equals(JumpType.NONE) && jumpCount < jumpSize;
         action[MarioActions.SPEED.getValue()] = !(jumpType.equals(JumpType.ENEMY) && action[MarioActions.SPEED.getValue()] && model.getMarioMode() == 2);
-        prevY = model.getMarioFloatPos()[1];
+        prevY = model.getMarioY();
         return action;
     }
 
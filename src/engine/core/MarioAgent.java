@@ -17,12 +17,22 @@ public interface MarioAgent {
     /**
      * get mario current actions
      *
-     * @param model a forward model object so the agent can simulate the future.
+     * @param model a forward model object so the agent can simulate the future. It reads the running game
+     *              until it is advanced, so it should not be kept after the call returns.
      * @param timer amount of time before the agent has to return the actions.
      * @return an array of the state of the buttons on the controller
      */
     boolean[] getActions(MarioForwardModel model, MarioTimer timer);
 
+    /**
+     * Seed every random number generator of the agent, it is called before initialize when a game is
+     * simulated with a seed. Agents that don't use randomness can ignore it.
+     *
+     * @param seed the seed of the game
+     */
+    default void setSeed(long seed) {
+    }
+
     /**
      * Return the name of the agent that will be displayed in debug purposes
      *
@@ -0,0 +1,139 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import engine.helper.RecordingLevel;
+
+/**
+ * Runs many headless games in parallel. Every job gets its own MarioGame and its own agent, the engine
+ * has no shared mutable state when visuals are off so jobs never wait on each other. Results are
+ * handed back on the calling thread in the order the games finish.
+ */
+public class MarioBatch {
+    private final ArrayList<MarioBatchJob> jobs = new ArrayList<>();
+
+    /**
+     * Add a game to the batch
+     *
+     * @param agentFactory creates a new agent for the game, it is called on the thread that plays the game
+     * @param level        a string that constitutes the mario level, it uses the same representation as the VGLC but with more details. for more details about each symbol check the json file in the levels folder.
+     * @param timer        number of ticks for that level to be played. Setting timer to anything &lt;=0 will make the time infinite
+     * @param marioState   the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @return the job that was added
+     */
+    public MarioBatchJob addJob(Supplier<MarioAgent> agentFactory, String level, int timer, int marioState) {
+        MarioBatchJob job = new MarioBatchJob(this.jobs.size(), agentFactory, level, timer, marioState,
+                0, RecordingLevel.FULL, 0);
+        this.jobs.add(job);
+        return job;
+    }
+
+    /**
+     * Add a game to the batch that is simulated with an iteration budget instead of the wall clock,
+     * so its result doesn't depend on how loaded the machine is
+     *
+     * @param agentFactory creates a new agent for the game, it is called on the thread that plays the game
+     * @param level        a string that constitutes the mario level, it uses the same representation as the VGLC but with more details. for more details about each symbol check the json file in the levels folder.
+     * @param timer        number of ticks for that level to be played. Setting timer to anything &lt;=0 will make the time infinite
+     * @param marioState   the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param iterations   the budget of the agent timer each tick, see MarioTimer.createIterationTimer
+     * @param recording    the events that are kept in the result
+     * @param seed         the seed given to the agent before it is initialized
+     * @return the job that was added
+     * @see MarioGame#simulateGame(MarioAgent, String, int, int, long, RecordingLevel, long)
+     */
+    public MarioBatchJob addJob(Supplier<MarioAgent> agentFactory, String level, int timer, int marioState,
+                                long iterations, RecordingLevel recording, long seed) {
+        MarioBatchJob job = new MarioBatchJob(this.jobs.size(), agentFactory, level, timer, marioState,
+                Math.max(1, iterations), recording, seed);
+        this.jobs.add(job);
+        return job;
+    }
+
+    /**
+     * Get the jobs of the batch
+     *
+     * @return the jobs in the order they were added
+     */
+    public List<MarioBatchJob> getJobs() {
+        return this.jobs;
+    }
+
+    /**
+     * Run all the jobs on a new ForkJoinPool using all the available processors
+     *
+     * @param consumer receives every job with its result as soon as the game ends
+     */
+    public void run(BiConsumer<MarioBatchJob, MarioResult> consumer) {
+        this.run(Runtime.getRuntime().availableProcessors(), consumer);
+    }
+
+    /**
+     * Run all the jobs on a new ForkJoinPool
+     *
+     * @param parallelism the number of games played at the same time
+     * @param consumer    receives every job with its result as soon as the game ends
+     */
+    public void run(int parallelism, BiConsumer<MarioBatchJob, MarioResult> consumer) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            this.run(pool, consumer);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run all the jobs on the given executor, for example a ForkJoinPool or a virtual thread executor.
+     * If a game throws, the remaining games are cancelled and the exception is rethrown.
+     *
+     * @param executor the executor playing the games, it is not shut down
+     * @param consumer receives every job with its result as soon as the game ends, on the calling thread
+     */
+    public void run(Executor executor, BiConsumer<MarioBatchJob, MarioResult> consumer) {
+        CompletionService<MarioResult> completion = new ExecutorCompletionService<>(executor);
+        HashMap<Future<MarioResult>, MarioBatchJob> futures = new HashMap<>();
+        for (MarioBatchJob job : this.jobs) {
+            futures.put(completion.submit(job::run), job);
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<MarioResult> future = completion.take();
+                consumer.accept(futures.get(future), future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch game failed", e.getCause());
+        } finally {
+            for (Future<MarioResult> future : futures.keySet()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Run all the jobs on a new ForkJoinPool using all the available processors
+     *
+     * @return the results in the order the jobs were added
+     */
+    public List<MarioResult> runAll() {
+        ArrayList<MarioResult> results = new ArrayList<>(this.jobs.size());
+        for (int i = 0; i < this.jobs.size(); i++) {
+            results.add(null);
+        }
+        this.run((job, result) -> results.set(job.getIndex(), result));
+        return results;
+    }
+}
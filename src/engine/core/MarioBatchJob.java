@@ -0,0 +1,91 @@
+package engine.core;
+
+import java.util.function.Supplier;
+
+import engine.helper.RecordingLevel;
+
+public class MarioBatchJob {
+    private final int index;
+    private final Supplier<MarioAgent> agentFactory;
+    private final String level;
+    private final int timer;
+    private final int marioState;
+    // agent timer budget in iterations, 0 when the game uses the wall clock
+    private final long iterations;
+    private final RecordingLevel recording;
+    private final long seed;
+
+    /**
+     * Create a job for the batch runner
+     *
+     * @param index        the position of the job in its batch
+     * @param agentFactory creates a new agent for the job, agents are never shared between jobs
+     * @param level        a string that constitutes the mario level, it uses the same representation as the VGLC but with more details. for more details about each symbol check the json file in the levels folder.
+     * @param timer        number of ticks for that level to be played. Setting timer to anything &lt;=0 will make the time infinite
+     * @param marioState   the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param iterations   the budget of the agent timer each tick, 0 to use the wall clock
+     * @param recording    the events that are kept in the result
+     * @param seed         the seed given to the agent, only used when iterations is positive
+     */
+    MarioBatchJob(int index, Supplier<MarioAgent> agentFactory, String level, int timer, int marioState,
+                  long iterations, RecordingLevel recording, long seed) {
+        this.index = index;
+        this.agentFactory = agentFactory;
+        this.level = level;
+        this.timer = timer;
+        this.marioState = marioState;
+        this.iterations = iterations;
+        this.recording = recording;
+        this.seed = seed;
+    }
+
+    /**
+     * Get the position of the job in its batch
+     *
+     * @return the order in which the job was added, starting from 0
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    public Supplier<MarioAgent> getAgentFactory() {
+        return this.agentFactory;
+    }
+
+    public String getLevel() {
+        return this.level;
+    }
+
+    public int getTimer() {
+        return this.timer;
+    }
+
+    public int getMarioState() {
+        return this.marioState;
+    }
+
+    public long getIterations() {
+        return this.iterations;
+    }
+
+    public RecordingLevel getRecording() {
+        return this.recording;
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    /**
+     * Play the job headless on the calling thread with its own game and agent
+     *
+     * @return statistics about the game
+     */
+    MarioResult run() {
+        if (this.iterations > 0) {
+            return new MarioGame().simulateGame(this.agentFactory.get(), this.level, this.timer, this.marioState,
+                    this.iterations, this.recording, this.seed);
+        }
+        return new MarioGame().runGame(this.agentFactory.get(), this.level, this.timer, this.marioState);
+    }
+}
@@ -0,0 +1,86 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Broad phase used by MarioWorld for the shell and fireball checks. Alive sprites are bucketed by
+ * the tile column of their x position, every narrow phase check needs the two sprites to be less
+ * than 16 pixels apart on x so only the column of the query and its two neighbours are visited.
+ * Candidates are returned in the same order as the sprite list so the results match a full scan.
+ */
+class MarioCollisionGrid {
+    private int firstColumn;
+    private int columns;
+    private int[] heads = new int[16];
+    private int[] next = new int[16];
+    private int[] candidates = new int[16];
+
+    private static int getColumn(float x) {
+        return (int) Math.floor(x / 16);
+    }
+
+    /**
+     * Bucket the alive sprites of the list, the list must not change until the grid is built again
+     *
+     * @param sprites the sprites of the world
+     */
+    void build(ArrayList<MarioSprite> sprites) {
+        int size = sprites.size();
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            MarioSprite sprite = sprites.get(i);
+            if (sprite.alive) {
+                int column = getColumn(sprite.x);
+                min = Math.min(min, column);
+                max = Math.max(max, column);
+            }
+        }
+        if (min > max) {
+            this.columns = 0;
+            return;
+        }
+        this.firstColumn = min;
+        this.columns = max - min + 1;
+        if (this.heads.length < this.columns) {
+            this.heads = new int[Math.max(this.columns, this.heads.length * 2)];
+        }
+        if (this.next.length < size) {
+            this.next = new int[Math.max(size, this.next.length * 2)];
+            this.candidates = new int[this.next.length];
+        }
+        Arrays.fill(this.heads, 0, this.columns, -1);
+        // inserting backwards keeps every column sorted by sprite index
+        for (int i = size - 1; i >= 0; i--) {
+            MarioSprite sprite = sprites.get(i);
+            if (sprite.alive) {
+                int column = getColumn(sprite.x) - this.firstColumn;
+                this.next[i] = this.heads[column];
+                this.heads[column] = i;
+            }
+        }
+    }
+
+    /**
+     * Find the sprites that can be closer than 16 pixels on x to the given position
+     *
+     * @param x the x position of the shell or fireball
+     * @return the number of candidates, they can be read with getCandidate in increasing index order
+     */
+    int query(float x) {
+        int count = 0;
+        int column = getColumn(x) - this.firstColumn;
+        for (int c = Math.max(0, column - 1); c <= Math.min(this.columns - 1, column + 1); c++) {
+            for (int i = this.heads[c]; i >= 0; i = this.next[i]) {
+                this.candidates[count++] = i;
+            }
+        }
+        Arrays.sort(this.candidates, 0, count);
+        return count;
+    }
+
+    int getCandidate(int index) {
+        return this.candidates[index];
+    }
+}
@@ -1,13 +1,12 @@
 package engine.core;
 
-import java.util.ArrayList;
-
 import engine.helper.EventType;
 import engine.helper.GameStatus;
 import engine.helper.SpriteType;
 
 public class MarioForwardModel {
     private static final int OBS_SCENE_SHIFT = 16;
+    private static final float[] NO_ENEMIES = new float[0];
 
     // Generic values
     public static final int OBS_NONE = 0;
@@ -64,14 +63,72 @@ public class MarioForwardModel {
     // Enemies Detail 2
     public static final int OBS_ENEMY = 1;
 
+    private static final int OBS_DETAILS = 3;
+    private static final SpriteType[] spriteTypes = SpriteType.values();
+    // generalized value of every sprite ordinal and tile index for each detail level,
+    // tiles outside the table are generalized on every call
+    private static final int[][] spriteGeneralization = new int[OBS_DETAILS][spriteTypes.length];
+    private static final int[][] blockGeneralization = new int[OBS_DETAILS][64];
+
+    static {
+        for (int detail = 0; detail < OBS_DETAILS; detail++) {
+            for (SpriteType sprite : spriteTypes) {
+                spriteGeneralization[detail][sprite.ordinal()] = computeSpriteTypeGeneralization(sprite, detail);
+            }
+            for (int tile = 0; tile < blockGeneralization[detail].length; tile++) {
+                blockGeneralization[detail][tile] = computeBlockValueGeneralization(tile, detail);
+            }
+        }
+    }
+
     public static int getSpriteTypeGeneralization(SpriteType sprite, int detail) {
+        if (detail < 0 || detail >= OBS_DETAILS) {
+            return OBS_UNDEF;
+        }
+        return spriteGeneralization[detail][sprite.ordinal()];
+    }
+
+    public static int getBlockValueGeneralization(int tile, int detail) {
+        if (detail < 0 || detail >= OBS_DETAILS || tile < 0 || tile >= blockGeneralization[detail].length) {
+            return computeBlockValueGeneralization(tile, detail);
+        }
+        return blockGeneralization[detail][tile];
+    }
+
+    /**
+     * Get the lookup table used by getBlockValueGeneralization for a detail level
+     *
+     * @param detail the scene detail level
+     * @return the generalized value of every tile index covered by the table, null for unknown detail levels
+     */
+    static int[] getBlockGeneralizationTable(int detail) {
+        if (detail < 0 || detail >= OBS_DETAILS) {
+            return null;
+        }
+        return blockGeneralization[detail];
+    }
+
+    /**
+     * Get the lookup table used by getSpriteTypeGeneralization for a detail level
+     *
+     * @param detail the enemies detail level
+     * @return the generalized value of every sprite type ordinal, null for unknown detail levels
+     */
+    static int[] getSpriteGeneralizationTable(int detail) {
+        if (detail < 0 || detail >= OBS_DETAILS) {
+            return null;
+        }
+        return spriteGeneralization[detail];
+    }
+
+    private static int computeSpriteTypeGeneralization(SpriteType sprite, int detail) {
         switch (detail) {
             case (0):
                 switch (sprite) {
                     case MARIO:
                         return OBS_NONE;
                     default:
-                        sprite.getValue();
+                        return sprite.getValue();
                 }
             case (1):
                 switch (sprite) {
@@ -114,7 +171,7 @@ public class MarioForwardModel {
         return OBS_UNDEF;
     }
 
-    public static int getBlockValueGeneralization(int tile, int detail) {
+    private static int computeBlockValueGeneralization(int tile, int detail) {
         if (tile == 0) {
             return OBS_NONE;
         }
@@ -206,6 +263,9 @@ public class MarioForwardModel {
     public final int obsGridHeight = MarioGame.tileHeight;
 
     private MarioWorld world;
+    private MarioUndoJournal journal;
+    // true while the world belongs to the game and must be cloned before it is changed
+    private boolean shared;
 
     // stats
     private int fallKill;
@@ -226,12 +286,42 @@ public class MarioForwardModel {
         this.world = world;
     }
 
+    /**
+     * Create a read only view of a world that is only cloned the first time the forward model needs
+     * to change it, agents that only read observations never pay for the clone. The world must not
+     * change while the view is being used.
+     *
+     * @param world the world of the running game
+     * @return a forward model reading the world directly
+     */
+    static MarioForwardModel createView(MarioWorld world) {
+        MarioForwardModel model = new MarioForwardModel(world);
+        model.shared = true;
+        return model;
+    }
+
+    private void countClone() {
+        MarioMetrics metrics = this.world.getMetrics();
+        if (metrics != null) {
+            metrics.increment(MarioMetrics.CLONES, 1);
+        }
+    }
+
+    private void ensureOwnWorld() {
+        if (this.shared) {
+            this.countClone();
+            this.world = this.world.clone();
+            this.shared = false;
+        }
+    }
+
     /**
      * Create a clone from the current forward model state
      *
      * @return a clone from the current forward model state
      */
     public MarioForwardModel clone() {
+        this.countClone();
         MarioForwardModel model = new MarioForwardModel(this.world.clone());
         model.fallKill = this.fallKill;
         model.stompKill = this.stompKill;
@@ -243,12 +333,117 @@ public class MarioForwardModel {
         return model;
     }
 
+    /**
+     * Take a snapshot of the current forward model state that can be restored later
+     * using restore. This is much cheaper than clone as no sprite objects are copied.
+     *
+     * @return a token holding the current forward model state
+     */
+    public MarioSnapshot snapshot() {
+        return this.snapshot(new MarioSnapshot());
+    }
+
+    /**
+     * Take a snapshot of the current forward model state reusing the buffers of an older
+     * snapshot. The older snapshot is overwritten and must not be restored afterwards
+     * expecting its previous state.
+     *
+     * @param reuse a snapshot that is no longer needed
+     * @return the reuse token holding the current forward model state
+     */
+    public MarioSnapshot snapshot(MarioSnapshot reuse) {
+        this.world.saveState(reuse);
+        this.world.level.saveState(reuse);
+        this.saveStats(reuse);
+        return reuse;
+    }
+
+    /**
+     * Rewind the forward model to the state of a snapshot. The snapshot must come from this
+     * forward model or from a clone of it and it can be restored multiple times.
+     * All the advances that could be undone are forgotten.
+     *
+     * @param snapshot a token returned by snapshot
+     */
+    public void restore(MarioSnapshot snapshot) {
+        this.ensureOwnWorld();
+        this.world.loadState(snapshot);
+        this.world.level.loadState(snapshot);
+        this.loadStats(snapshot);
+        if (this.journal != null) {
+            this.journal.clear();
+        }
+    }
+
+    /**
+     * Keep the state before each of the last advances so they can be reverted with undo.
+     * Only what changed is recorded, the changed tiles and sprites, so an undo step doesn't copy the
+     * level or every sprite. Clones don't inherit the undo steps of their source.
+     *
+     * @param steps the maximum number of advances that can be undone, 0 to stop recording
+     */
+    public void setUndoLimit(int steps) {
+        this.ensureOwnWorld();
+        this.journal = steps > 0 ? new MarioUndoJournal(steps) : null;
+        this.world.level.journal = this.journal;
+    }
+
+    /**
+     * Get how many advances can be reverted right now
+     *
+     * @return the number of times undo can be called
+     */
+    public int getUndoSteps() {
+        return this.journal == null ? 0 : this.journal.size();
+    }
+
+    /**
+     * Revert the last advance, setUndoLimit must have been called before advancing
+     *
+     * @return true if an advance was reverted and false if there was nothing to undo
+     */
+    public boolean undo() {
+        if (this.journal == null || this.journal.size() == 0) {
+            return false;
+        }
+        MarioSnapshot state = this.journal.pop(this.world);
+        this.world.loadValues(state);
+        this.loadStats(state);
+        return true;
+    }
+
+    private void saveStats(MarioSnapshot snapshot) {
+        snapshot.fallKill = this.fallKill;
+        snapshot.stompKill = this.stompKill;
+        snapshot.fireKill = this.fireKill;
+        snapshot.shellKill = this.shellKill;
+        snapshot.mushrooms = this.mushrooms;
+        snapshot.flowers = this.flowers;
+        snapshot.breakBlock = this.breakBlock;
+    }
+
+    private void loadStats(MarioSnapshot snapshot) {
+        this.fallKill = snapshot.fallKill;
+        this.stompKill = snapshot.stompKill;
+        this.fireKill = snapshot.fireKill;
+        this.shellKill = snapshot.shellKill;
+        this.mushrooms = snapshot.mushrooms;
+        this.flowers = snapshot.flowers;
+        this.breakBlock = snapshot.breakBlock;
+    }
+
     /**
      * Advance the forward model using the action array
      *
      * @param actions a list of all the button states
      */
     public void advance(boolean[] actions) {
+        this.ensureOwnWorld();
+        if (this.journal != null) {
+            MarioSnapshot state = this.journal.push(this.world);
+            this.world.saveValues(state);
+            this.saveStats(state);
+        }
         this.world.update(actions);
         for (MarioEvent e : this.world.lastFrameEvents) {
             if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
@@ -276,6 +471,9 @@ public class MarioForwardModel {
                 this.breakBlock += 1;
             }
         }
+        if (this.journal != null) {
+            this.journal.recordSprites(this.world);
+        }
     }
 
     /**
@@ -302,7 +500,25 @@ public class MarioForwardModel {
      * @return the first value is level width and second is level height
      */
     public float[] getLevelFloatDimensions() {
-        return new float[]{this.world.level.width, this.world.level.height};
+        return new float[]{this.getLevelWidth(), this.getLevelHeight()};
+    }
+
+    /**
+     * Get the current level width
+     *
+     * @return the level width in pixels
+     */
+    public int getLevelWidth() {
+        return this.world.level.width;
+    }
+
+    /**
+     * Get the current level height
+     *
+     * @return the level height in pixels
+     */
+    public int getLevelHeight() {
+        return this.world.level.height;
     }
 
     /**
@@ -320,7 +536,25 @@ public class MarioForwardModel {
      * @return the actual mario position in the current state
      */
     public float[] getMarioFloatPos() {
-        return new float[]{this.world.mario.x, this.world.mario.y};
+        return new float[]{this.getMarioX(), this.getMarioY()};
+    }
+
+    /**
+     * Get mario x position without allocating an array
+     *
+     * @return the actual mario x position in the current state
+     */
+    public float getMarioX() {
+        return this.world.mario.x;
+    }
+
+    /**
+     * Get mario y position without allocating an array
+     *
+     * @return the actual mario y position in the current state
+     */
+    public float getMarioY() {
+        return this.world.mario.y;
     }
 
     /**
@@ -329,7 +563,25 @@ public class MarioForwardModel {
      * @return the actual mario velocity in the current state
      */
     public float[] getMarioFloatVelocity() {
-        return new float[]{this.world.mario.xa, this.world.mario.ya};
+        return new float[]{this.getMarioXVelocity(), this.getMarioYVelocity()};
+    }
+
+    /**
+     * Get mario horizontal velocity without allocating an array
+     *
+     * @return the actual mario x velocity in the current state
+     */
+    public float getMarioXVelocity() {
+        return this.world.mario.xa;
+    }
+
+    /**
+     * Get mario vertical velocity without allocating an array
+     *
+     * @return the actual mario y velocity in the current state
+     */
+    public float getMarioYVelocity() {
+        return this.world.mario.ya;
     }
 
     /**
@@ -382,16 +634,30 @@ public class MarioForwardModel {
      * position for each enemy sprite
      */
     public float[] getEnemiesFloatPos() {
-        ArrayList<MarioSprite> enemiesAlive = this.world.getEnemies();
-        float[] enemyPos = new float[enemiesAlive.size() * 3];
-        for (int i = 0; i < enemiesAlive.size(); i++) {
-            enemyPos[3 * i] = enemiesAlive.get(i).type.getValue();
-            enemyPos[3 * i + 1] = enemiesAlive.get(i).x;
-            enemyPos[3 * i + 2] = enemiesAlive.get(i).y;
-        }
+        float[] enemyPos = new float[this.getNumEnemies() * 3];
+        this.getEnemiesFloatPos(enemyPos);
         return enemyPos;
     }
 
+    /**
+     * Write the type, x position and y position of each enemy into a buffer
+     *
+     * @param buffer an array of at least 3 * getNumEnemies() floats, enemies that don't fit are skipped
+     * @return the number of enemies, it can be larger than the number of enemies written
+     */
+    public int getEnemiesFloatPos(float[] buffer) {
+        return this.world.getEnemiesFloatPos(buffer);
+    }
+
+    /**
+     * Get the number of enemies in the current state
+     *
+     * @return the number of enemy sprites
+     */
+    public int getNumEnemies() {
+        return this.world.getEnemiesFloatPos(NO_ENEMIES);
+    }
+
     /**
      * get the number of enemies killed in the game
      *
@@ -488,7 +754,25 @@ public class MarioForwardModel {
      * @return the x and y location of mario on the screen as tile values
      */
     public int[] getMarioScreenTilePos() {
-        return new int[]{(int) ((this.world.mario.x - this.world.cameraX) / 16), (int) (this.world.mario.y / 16)};
+        return new int[]{this.getMarioScreenTileX(), this.getMarioScreenTileY()};
+    }
+
+    /**
+     * Get the x tile location of mario with respect to the screen
+     *
+     * @return the x location of mario on the screen as a tile value
+     */
+    public int getMarioScreenTileX() {
+        return (int) ((this.world.mario.x - this.world.cameraX) / 16);
+    }
+
+    /**
+     * Get the y tile location of mario with respect to the screen
+     *
+     * @return the y location of mario on the screen as a tile value
+     */
+    public int getMarioScreenTileY() {
+        return (int) (this.world.mario.y / 16);
     }
 
     /**
@@ -569,8 +853,22 @@ public class MarioForwardModel {
      * @return 2D grid that have all the information about all objects on the screen
      */
     public int[][] getScreenCompleteObservation(int sceneDetail, int enemyDetail) {
+        return this.getScreenCompleteObservation(sceneDetail, enemyDetail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    /**
+     * The current screen status as a 2D tile grid around the center of screen
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer a grid of obsGridWidth x obsGridHeight that is overwritten
+     * @return the buffer filled with the observation
+     */
+    public int[][] getScreenCompleteObservation(int sceneDetail, int enemyDetail, int[][] buffer) {
         return this.world.getMergedObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2,
-                sceneDetail, enemyDetail);
+                sceneDetail, enemyDetail, buffer);
     }
 
     /**
@@ -584,7 +882,20 @@ public class MarioForwardModel {
      * values (Detail 0).
      */
     public int[][] getScreenEnemiesObservation(int detail) {
-        return this.world.getEnemiesObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail);
+        return this.getScreenEnemiesObservation(detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    /**
+     * The current enemies on the screen as a 2D tile grid around the center of
+     * screen
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer a grid of obsGridWidth x obsGridHeight that is overwritten
+     * @return the buffer filled with the observation
+     */
+    public int[][] getScreenEnemiesObservation(int detail, int[][] buffer) {
+        return this.world.getEnemiesObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail, buffer);
     }
 
     /**
@@ -598,7 +909,20 @@ public class MarioForwardModel {
      * TileTypes for the meaning of values (Detail 1)
      */
     public int[][] getScreenSceneObservation(int detail) {
-        return this.world.getSceneObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail);
+        return this.getScreenSceneObservation(detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    /**
+     * The current objects (not enemies) on the screen as a 2D tile grid around the
+     * center of screen
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer a grid of obsGridWidth x obsGridHeight that is overwritten
+     * @return the buffer filled with the observation
+     */
+    public int[][] getScreenSceneObservation(int detail, int[][] buffer) {
+        return this.world.getSceneObservation(this.world.cameraX + MarioGame.width / 2, MarioGame.height / 2, detail, buffer);
     }
 
     /**
@@ -611,7 +935,21 @@ public class MarioForwardModel {
      * @return 2D grid that have all the information about all objects on the screen
      */
     public int[][] getMarioCompleteObservation(int sceneDetail, int enemyDetail) {
-        return this.world.getMergedObservation(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail);
+        return this.getMarioCompleteObservation(sceneDetail, enemyDetail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    /**
+     * The current screen status as a 2D tile grid around mario
+     *
+     * @param sceneDetail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *                    binary detail
+     * @param enemyDetail the detail level of the current enemies: 0 all details, 1 less
+     *                    detailed, 2 binary detail
+     * @param buffer a grid of obsGridWidth x obsGridHeight that is overwritten
+     * @return the buffer filled with the observation
+     */
+    public int[][] getMarioCompleteObservation(int sceneDetail, int enemyDetail, int[][] buffer) {
+        return this.world.getMergedObservation(this.world.mario.x, this.world.mario.y, sceneDetail, enemyDetail, buffer);
     }
 
     /**
@@ -624,7 +962,19 @@ public class MarioForwardModel {
      * values (Detail 0).
      */
     public int[][] getMarioEnemiesObservation(int detail) {
-        return this.world.getEnemiesObservation(this.world.mario.x, this.world.mario.y, detail);
+        return this.getMarioEnemiesObservation(detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    /**
+     * The current enemies on the screen as a 2D tile grid around mario
+     *
+     * @param detail the detail level of the current enemies: 0 all details, 1 less
+     *               detailed, 2 binary detail
+     * @param buffer a grid of obsGridWidth x obsGridHeight that is overwritten
+     * @return the buffer filled with the observation
+     */
+    public int[][] getMarioEnemiesObservation(int detail, int[][] buffer) {
+        return this.world.getEnemiesObservation(this.world.mario.x, this.world.mario.y, detail, buffer);
     }
 
     /**
@@ -638,6 +988,19 @@ public class MarioForwardModel {
      * TileTypes for the meaning of values (Detail 1)
      */
     public int[][] getMarioSceneObservation(int detail) {
-        return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail);
+        return this.getMarioSceneObservation(detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    /**
+     * The current objects (not enemies) on the screen as a 2D tile grid around
+     * mario
+     *
+     * @param detail the detail level of the scene: 0 all detail, 1 less detailed, 2
+     *               binary detail
+     * @param buffer a grid of obsGridWidth x obsGridHeight that is overwritten
+     * @return the buffer filled with the observation
+     */
+    public int[][] getMarioSceneObservation(int detail, int[][] buffer) {
+        return this.world.getSceneObservation(this.world.mario.x, this.world.mario.y, detail, buffer);
     }
 }
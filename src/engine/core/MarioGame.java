@@ -10,6 +10,7 @@ import javax.swing.JFrame;
 import agents.human.Agent;
 import engine.helper.GameStatus;
 import engine.helper.MarioActions;
+import engine.helper.RecordingLevel;
 
 public class MarioGame {
     /**
@@ -56,6 +57,7 @@ public class MarioGame {
     private MarioRender render = null;
     private MarioAgent agent = null;
     private MarioWorld world = null;
+    private MarioMetrics metrics = null;
 
     /**
      * Create a mario game to be played
@@ -73,6 +75,15 @@ public class MarioGame {
         this.killEvents = killEvents;
     }
 
+    /**
+     * Profile the next games, the registry is returned with their results and keeps accumulating across games
+     *
+     * @param metrics the registry receiving the measurements, null to disable profiling
+     */
+    public void setMetrics(MarioMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     private int getDelay(int fps) {
         if (fps <= 0) {
             return 0;
@@ -204,6 +215,24 @@ public class MarioGame {
      * @return statistics about the current game
      */
     public MarioResult runGame(MarioAgent agent, String level, int timer, int marioState, boolean visuals, int fps, float scale) {
+        return this.runGame(agent, level, timer, marioState, visuals, fps, scale, RecordingLevel.FULL);
+    }
+
+    /**
+     * Run a certain mario level with a certain agent
+     *
+     * @param agent      the current AI agent used to play the game
+     * @param level      a string that constitutes the mario level, it uses the same representation as the VGLC but with more details. for more details about each symbol check the json file in the levels folder.
+     * @param timer      number of ticks for that level to be played. Setting timer to anything &lt;=0 will make the time infinite
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param visuals    show the game visuals if it is true and false otherwise
+     * @param fps        the number of frames per second that the update function is following
+     * @param scale      the screen scale, that scale value is multiplied by the actual width and height
+     * @param recording  the events that are kept in the result, RecordingLevel.REPLAY records a MarioReplay
+     * @return statistics about the current game
+     */
+    public MarioResult runGame(MarioAgent agent, String level, int timer, int marioState, boolean visuals, int fps, float scale,
+                               RecordingLevel recording) {
         if (visuals) {
             this.window = new JFrame("Mario AI Framework");
             this.render = new MarioRender(3.0f);
@@ -215,13 +244,42 @@ public class MarioGame {
             this.window.setVisible(true);
         }
         this.setAgent(agent);
-        return this.gameLoop(level, timer, marioState, visuals, fps);
+        return this.gameLoop(level, timer, marioState, visuals, fps, 0, recording);
+    }
+
+    /**
+     * Run a certain mario level with a certain agent headless and as fast as possible. The agent timer
+     * counts iterations instead of milliseconds, so with the same seed two runs give the same result on
+     * any machine and under any load.
+     *
+     * @param agent      the current AI agent used to play the game
+     * @param level      a string that constitutes the mario level, it uses the same representation as the VGLC but with more details. for more details about each symbol check the json file in the levels folder.
+     * @param timer      number of ticks for that level to be played. Setting timer to anything &lt;=0 will make the time infinite
+     * @param marioState the initial state that mario appears in. 0 small mario, 1 large mario, and 2 fire mario.
+     * @param iterations the budget of the agent timer each tick, see MarioTimer.createIterationTimer
+     * @param recording  the events that are kept in the result
+     * @param seed       the seed given to the agent before it is initialized
+     * @return statistics about the current game
+     */
+    public MarioResult simulateGame(MarioAgent agent, String level, int timer, int marioState, long iterations,
+                                    RecordingLevel recording, long seed) {
+        this.agent = agent;
+        this.agent.setSeed(seed);
+        return this.gameLoop(level, timer, marioState, false, 0, Math.max(1, iterations), recording);
     }
 
-    private MarioResult gameLoop(String level, int timer, int marioState, boolean visual, int fps) {
+    private MarioTimer createAgentTimer(long iterations) {
+        if (iterations > 0) {
+            return MarioTimer.createIterationTimer(iterations);
+        }
+        return new MarioTimer(MarioGame.maxTime);
+    }
+
+    private MarioResult gameLoop(String level, int timer, int marioState, boolean visual, int fps, long iterations, RecordingLevel recording) {
         this.world = new MarioWorld(this.killEvents);
         this.world.visuals = visual;
         this.world.initializeLevel(level, 1000 * timer);
+        this.world.setMetrics(this.metrics);
         if (visual) {
             this.world.initializeVisuals(this.render.getGraphicsConfiguration());
         }
@@ -241,28 +299,54 @@ public class MarioGame {
             this.render.addFocusListener(this.render);
         }
 
-        MarioTimer agentTimer = new MarioTimer(MarioGame.maxTime);
-        this.agent.initialize(new MarioForwardModel(this.world.clone()), agentTimer);
+        MarioTimer agentTimer = this.createAgentTimer(iterations);
+        this.agent.initialize(MarioForwardModel.createView(this.world), agentTimer);
 
         ArrayList<MarioEvent> gameEvents = new ArrayList<>();
         ArrayList<MarioAgentEvent> agentEvents = new ArrayList<>();
+        MarioStatistics statistics = new MarioStatistics();
+        MarioReplayRecorder replay = null;
+        if (recording == RecordingLevel.REPLAY) {
+            replay = new MarioReplayRecorder(level, timer, marioState, this.killEvents);
+        }
+        MarioHistogram agentLatency = new MarioHistogram();
+        int agentOverruns = 0;
+        long overrunTime = (MarioGame.maxTime + MarioGame.graceTime) * 1000000;
         while (this.world.gameStatus == GameStatus.RUNNING) {
             if (!this.pause) {
                 //get actions
-                agentTimer = new MarioTimer(MarioGame.maxTime);
-                boolean[] actions = this.agent.getActions(new MarioForwardModel(this.world.clone()), agentTimer);
-                if (MarioGame.verbose) {
-                    if (agentTimer.getRemainingTime() < 0 && Math.abs(agentTimer.getRemainingTime()) > MarioGame.graceTime) {
+                agentTimer = this.createAgentTimer(iterations);
+                long clones = this.metrics != null ? this.metrics.getCounter(MarioMetrics.CLONES) : 0;
+                long agentStart = System.nanoTime();
+                boolean[] actions = this.agent.getActions(MarioForwardModel.createView(this.world), agentTimer);
+                long agentTime = System.nanoTime() - agentStart;
+                agentLatency.record(agentTime);
+                if (this.metrics != null) {
+                    this.metrics.getHistogram(MarioMetrics.CLONES_PER_TICK).record(this.metrics.getCounter(MarioMetrics.CLONES) - clones);
+                }
+                if (agentTime > overrunTime) {
+                    agentOverruns += 1;
+                    if (MarioGame.verbose && iterations <= 0) {
                         System.out.println("The Agent is slowing down the game by: "
-                                + Math.abs(agentTimer.getRemainingTime()) + " msec.");
+                                + (agentTime / 1000000 - MarioGame.maxTime) + " msec.");
                     }
                 }
                 // update world
                 this.world.update(actions);
-                gameEvents.addAll(this.world.lastFrameEvents);
-                agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x,
-                        this.world.mario.y, (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0),
-                        this.world.mario.onGround, this.world.currentTick));
+                if (recording != RecordingLevel.NONE) {
+                    statistics.addAll(this.world.lastFrameEvents);
+                }
+                int state = (this.world.mario.isLarge ? 1 : 0) + (this.world.mario.isFire ? 1 : 0);
+                if (replay != null) {
+                    replay.recordTick(actions, this.world.mario.x, this.world.mario.y, state,
+                            this.world.mario.onGround, this.world.currentTick);
+                    replay.recordEvents(this.world.lastFrameEvents);
+                }
+                if (recording == RecordingLevel.FULL) {
+                    gameEvents.addAll(this.world.lastFrameEvents);
+                    agentEvents.add(new MarioAgentEvent(actions, this.world.mario.x,
+                            this.world.mario.y, state, this.world.mario.onGround, this.world.currentTick));
+                }
             }
 
             //render world
@@ -279,6 +363,15 @@ public class MarioGame {
                 }
             }
         }
-        return new MarioResult(this.world, gameEvents, agentEvents);
+        if (this.metrics != null) {
+            this.metrics.getHistogram(MarioMetrics.AGENT_LATENCY).merge(agentLatency);
+            this.metrics.increment(MarioMetrics.AGENT_OVERRUNS, agentOverruns);
+        }
+        MarioResult result = new MarioResult(this.world, gameEvents, agentEvents, statistics, this.metrics);
+        result.setAgentTiming(agentLatency, agentOverruns);
+        if (replay != null) {
+            result.setReplay(replay.finish());
+        }
+        return result;
     }
 }
@@ -0,0 +1,116 @@
+package engine.core;
+
+/**
+ * Histogram of non negative long values, usually nanoseconds. Values below 16 get their own bucket,
+ * larger values share 8 buckets per power of two, so percentiles are within 12.5% of the real value
+ * while the histogram always stays the same small size.
+ */
+public class MarioHistogram {
+    private static final int SUB_BUCKETS = 8;
+    private static final int LINEAR_BUCKETS = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - 4) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    private static int getBucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub;
+    }
+
+    private static long getBucketStart(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - 3);
+    }
+
+    private static long getBucketWidth(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return 1;
+        }
+        return 1L << ((bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 1);
+    }
+
+    /**
+     * Add a value to the histogram, negative values are counted as 0
+     *
+     * @param value the value to add
+     */
+    public synchronized void record(long value) {
+        value = Math.max(0, value);
+        this.counts[getBucket(value)] += 1;
+        this.count += 1;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Add all the values of another histogram to this one
+     *
+     * @param other the histogram to add
+     */
+    public synchronized void merge(MarioHistogram other) {
+        synchronized (other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                this.counts[i] += other.counts[i];
+            }
+            this.count += other.count;
+            this.sum += other.sum;
+            this.min = Math.min(this.min, other.min);
+            this.max = Math.max(this.max, other.max);
+        }
+    }
+
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    public synchronized long getSum() {
+        return this.sum;
+    }
+
+    public synchronized long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    public synchronized long getMax() {
+        return this.count == 0 ? 0 : this.max;
+    }
+
+    public synchronized double getMean() {
+        return this.count == 0 ? 0 : (double) this.sum / this.count;
+    }
+
+    /**
+     * Get an approximation of a percentile
+     *
+     * @param percentile a value between 0 and 100
+     * @return the middle of the bucket holding the percentile, clamped between the min and max values
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * this.count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= Math.max(1, rank)) {
+                long middle = getBucketStart(i) + getBucketWidth(i) / 2;
+                return Math.max(this.min, Math.min(this.max, middle));
+            }
+        }
+        return this.max;
+    }
+}
@@ -1,7 +1,9 @@
 package engine.core;
 
 import java.awt.Graphics;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.WeakHashMap;
 
 import engine.graphics.MarioImage;
 import engine.graphics.MarioTilemap;
@@ -10,6 +12,17 @@ import engine.helper.SpriteType;
 import engine.helper.TileFeature;
 
 public class MarioLevel {
+    // parsed levels registered by MarioLevelCorpus, an entry goes away with the corpus that owns its string
+    private static final WeakHashMap<String, MarioLevel> templates = new WeakHashMap<>();
+    private static final SpriteType[] spriteTypes = SpriteType.values();
+    // characters that findFirstFloor treats as ground
+    private static final boolean[] solid = new boolean[128];
+
+    static {
+        for (char c : "X#@!BCQ<>[]?SUD%tT".toCharArray()) {
+            solid[c] = true;
+        }
+    }
 
     public int width = MarioGame.width;
     public int tileWidth = MarioGame.width / 16;
@@ -18,42 +31,99 @@ public class MarioLevel {
     public int totalCoins = 0;
     public int marioTileX, marioTileY, exitTileX, exitTileY;
 
-    private int[][] levelTiles;
-    private SpriteType[][] spriteTemplates;
-    private int[][] lastSpawnTime;
+    // tiles are shared between clones until one of them writes to them
+    private MarioTileGrid levelTiles;
+    // receives the old value of every tile written while a forward model keeps undo steps
+    MarioUndoJournal journal;
+    // changes whenever a tile may have changed so cached scene observations are rebuilt
+    int tileVersion;
+    // ordinal of the sprite type spawned by every tile, column after column, 0 is SpriteType.NONE
+    private byte[] spriteTemplates;
+    // tile area scanned for spawns during the last world update, a sprite is only spawned from a tile that just came into view
+    int spawnScanTick = -40;
+    int spawnScanMinX, spawnScanMaxX = -1, spawnScanMinY, spawnScanMaxY = -1;
+    // ticks given to setLastSpawnTick by tile index, they win over the scanned area until the tile is scanned again
+    private HashMap<Integer, Integer> lastSpawnTicks;
     private MarioTilemap graphics;
     private MarioImage flag;
 
+    /**
+     * Lines of a level found without splitting it into strings, characters outside the lines read as empty tiles
+     */
+    private static final class LevelText {
+        private final char[] chars;
+        private final int[] lineStarts;
+        private final int[] lineEnds;
+        private final int lineCount;
+
+        private LevelText(char[] chars, int[] lineStarts, int[] lineEnds, int lineCount) {
+            this.chars = chars;
+            this.lineStarts = lineStarts;
+            this.lineEnds = lineEnds;
+            this.lineCount = lineCount;
+        }
+
+        int getLength(int y) {
+            return this.lineEnds[y] - this.lineStarts[y];
+        }
+
+        char get(int x, int y) {
+            if (x < 0 || y < 0 || y >= this.lineCount || x >= this.getLength(y)) {
+                return '-';
+            }
+            return this.chars[this.lineStarts[y] + x];
+        }
+    }
+
     public MarioLevel(String level, boolean visuals) {
-        if (level.trim().length() == 0) {
+        // line terminators are \n or \r\n and empty lines at the end are ignored
+        char[] chars = level.toCharArray();
+        int[] lineStarts = new int[32];
+        int[] lineEnds = new int[32];
+        int lineCount = 1;
+        boolean blank = true;
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (c == '\n') {
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                    lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                }
+                lineEnds[lineCount - 1] = i > lineStarts[lineCount - 1] && chars[i - 1] == '\r' ? i - 1 : i;
+                lineStarts[lineCount] = i + 1;
+                lineCount += 1;
+            } else if (c > ' ') {
+                blank = false;
+            }
+        }
+        lineEnds[lineCount - 1] = chars.length;
+        if (blank) {
             this.tileWidth = 0;
             this.width = 0;
             this.tileHeight = 0;
             this.height = 0;
             return;
         }
-        String[] lines = level.split("\\r?\\n");
-        this.tileWidth = lines[0].length();
+        while (lineCount > 1 && lineEnds[lineCount - 1] == lineStarts[lineCount - 1]) {
+            lineCount -= 1;
+        }
+        LevelText text = new LevelText(chars, lineStarts, lineEnds, lineCount);
+        this.tileWidth = text.getLength(0);
         this.width = this.tileWidth * 16;
-        this.tileHeight = lines.length;
+        this.tileHeight = lineCount;
         this.height = this.tileHeight * 16;
 
-        this.levelTiles = new int[lines[0].length()][lines.length];
-        this.spriteTemplates = new SpriteType[lines[0].length()][lines.length];
-        this.lastSpawnTime = new int[lines[0].length()][lines.length];
-        for (int y = 0; y < lines.length; y++) {
-            for (int x = 0; x < lines[y].length(); x++) {
-                this.levelTiles[x][y] = 0;
-                this.spriteTemplates[x][y] = SpriteType.NONE;
-                this.lastSpawnTime[x][y] = -40;
-            }
-        }
+        int rows = this.tileHeight;
+        MarioTileGrid levelTiles = new MarioTileGrid(this.tileWidth, rows, 0);
+        this.spriteTemplates = new byte[this.tileWidth * rows];
 
         boolean marioLocInit = false;
         boolean exitLocInit = false;
-        for (int y = 0; y < lines.length; y++) {
-            for (int x = 0; x < lines[y].length(); x++) {
-                Character c = lines[y].charAt(x);
+        for (int y = 0; y < this.tileHeight; y++) {
+            int lineStart = lineStarts[y];
+            int lineWidth = Math.min(this.tileWidth, text.getLength(y));
+            for (int x = 0; x < lineWidth; x++) {
+                char c = chars[lineStart + x];
                 switch (c) {
                     case 'M':
                         this.marioTileX = x;
@@ -66,155 +136,132 @@ public class MarioLevel {
                         exitLocInit = true;
                         break;
                     case 'y':
-                        this.spriteTemplates[x][y] = SpriteType.SPIKY;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.SPIKY.ordinal();
                         break;
                     case 'Y':
-                        this.spriteTemplates[x][y] = SpriteType.SPIKY_WINGED;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.SPIKY_WINGED.ordinal();
                         break;
                     case 'E':
                     case 'g':
-                        this.spriteTemplates[x][y] = SpriteType.GOOMBA;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.GOOMBA.ordinal();
                         break;
                     case 'G':
-                        this.spriteTemplates[x][y] = SpriteType.GOOMBA_WINGED;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.GOOMBA_WINGED.ordinal();
                         break;
                     case 'k':
-                        this.spriteTemplates[x][y] = SpriteType.GREEN_KOOPA;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.GREEN_KOOPA.ordinal();
                         break;
                     case 'K':
-                        this.spriteTemplates[x][y] = SpriteType.GREEN_KOOPA_WINGED;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.GREEN_KOOPA_WINGED.ordinal();
                         break;
                     case 'r':
-                        this.spriteTemplates[x][y] = SpriteType.RED_KOOPA;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.RED_KOOPA.ordinal();
                         break;
                     case 'R':
-                        this.spriteTemplates[x][y] = SpriteType.RED_KOOPA_WINGED;
+                        this.spriteTemplates[x * rows + y] = (byte) SpriteType.RED_KOOPA_WINGED.ordinal();
                         break;
                     case 'X':
                         //floor
-                        this.levelTiles[x][y] = 1;
+                        levelTiles.set(x, y, 1);
                         break;
                     case '#':
                         //pyramidBlock
-                        this.levelTiles[x][y] = 2;
+                        levelTiles.set(x, y, 2);
                         break;
                     case '%':
                         //jump through block
                         int tempIndex = 0;
-                        if (x > 0 && lines[y].charAt(x - 1) == '%') {
+                        if (text.get(x - 1, y) == '%') {
                             tempIndex += 2;
                         }
-                        if (x < this.levelTiles.length - 1 && lines[y].charAt(x + 1) == '%') {
+                        if (x < this.tileWidth - 1 && text.get(x + 1, y) == '%') {
                             tempIndex += 1;
                         }
-                        this.levelTiles[x][y] = 43 + tempIndex;
+                        levelTiles.set(x, y, 43 + tempIndex);
                         break;
                     case '|':
                         //background for jump through block
-                        this.levelTiles[x][y] = 47;
+                        levelTiles.set(x, y, 47);
                         break;
                     case '*':
                         //bullet bill
                         tempIndex = 0;
-                        if (y > 0 && lines[y - 1].charAt(x) == '*') {
+                        if (text.get(x, y - 1) == '*') {
                             tempIndex += 1;
                         }
-                        if (y > 1 && lines[y - 2].charAt(x) == '*') {
+                        if (text.get(x, y - 2) == '*') {
                             tempIndex += 1;
                         }
-                        this.levelTiles[x][y] = 3 + tempIndex;
+                        levelTiles.set(x, y, 3 + tempIndex);
                         break;
                     case 'B':
                         //bullet bill head
-                        this.levelTiles[x][y] = 3;
+                        levelTiles.set(x, y, 3);
                         break;
                     case 'b':
                         //bullet bill neck and body
                         tempIndex = 0;
-                        if (y > 1 && lines[y - 2].charAt(x) == 'B') {
+                        if (text.get(x, y - 2) == 'B') {
                             tempIndex += 1;
                         }
-                        this.levelTiles[x][y] = 4 + tempIndex;
+                        levelTiles.set(x, y, 4 + tempIndex);
                         break;
                     case '?':
                     case '@':
                         //mushroom question block
-                        this.levelTiles[x][y] = 8;
+                        levelTiles.set(x, y, 8);
                         break;
                     case 'Q':
                     case '!':
                         //coin question block
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 11;
+                        levelTiles.set(x, y, 11);
                         break;
                     case '1':
                         //invisible 1 up block
-                        this.levelTiles[x][y] = 48;
+                        levelTiles.set(x, y, 48);
                         break;
                     case '2':
                         //invisible coin block
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 49;
+                        levelTiles.set(x, y, 49);
                         break;
                     case 'D':
                         //used
-                        this.levelTiles[x][y] = 14;
+                        levelTiles.set(x, y, 14);
                         break;
                     case 'S':
                         //normal block
-                        this.levelTiles[x][y] = 6;
+                        levelTiles.set(x, y, 6);
                         break;
                     case 'C':
                         //coin block
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 7;
+                        levelTiles.set(x, y, 7);
                         break;
                     case 'U':
                         //mushroom block
-                        this.levelTiles[x][y] = 50;
+                        levelTiles.set(x, y, 50);
                         break;
                     case 'L':
                         //1up block
-                        this.levelTiles[x][y] = 51;
+                        levelTiles.set(x, y, 51);
                         break;
                     case 'o':
                         //coin
                         this.totalCoins += 1;
-                        this.levelTiles[x][y] = 15;
+                        levelTiles.set(x, y, 15);
                         break;
                     case 't':
-                        //empty Pipe
-                        tempIndex = 0;
-                        boolean singlePipe = false;
-                        if (x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
-                                x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't') {
-                            singlePipe = true;
-                        }
-                        if (x > 0 && (this.levelTiles[x - 1][y] == 18 || this.levelTiles[x - 1][y] == 20)) {
-                            tempIndex += 1;
-                        }
-                        if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
-                            if (singlePipe) {
-                                tempIndex += 1;
-                            } else {
-                                tempIndex += 2;
-                            }
-                        }
-                        if (singlePipe) {
-                            this.levelTiles[x][y] = 52 + tempIndex;
-                        } else {
-                            this.levelTiles[x][y] = 18 + tempIndex;
-                        }
-                        break;
                     case 'T':
-                        //flower pipe
+                        //empty pipe and flower pipe
                         tempIndex = 0;
-                        singlePipe = x < lines[y].length() - 1 && Character.toLowerCase(lines[y].charAt(x + 1)) != 't' &&
-                                x > 0 && Character.toLowerCase(lines[y].charAt(x - 1)) != 't';
-                        if (x > 0 && (this.levelTiles[x - 1][y] == 18 || this.levelTiles[x - 1][y] == 20)) {
+                        boolean singlePipe = x < text.getLength(y) - 1 && !isPipe(text.get(x + 1, y)) &&
+                                x > 0 && !isPipe(text.get(x - 1, y));
+                        if (x > 0 && (levelTiles.get(x - 1, y) == 18 || levelTiles.get(x - 1, y) == 20)) {
                             tempIndex += 1;
                         }
-                        if (y > 0 && Character.toLowerCase(lines[y - 1].charAt(x)) == 't') {
+                        if (isPipe(text.get(x, y - 1))) {
                             if (singlePipe) {
                                 tempIndex += 1;
                             } else {
@@ -222,51 +269,86 @@ public class MarioLevel {
                             }
                         }
                         if (singlePipe) {
-                            this.levelTiles[x][y] = 52 + tempIndex;
+                            levelTiles.set(x, y, 52 + tempIndex);
                         } else {
-                            if (tempIndex == 0) {
-                                this.spriteTemplates[x][y] = SpriteType.ENEMY_FLOWER;
+                            if (c == 'T' && tempIndex == 0) {
+                                this.spriteTemplates[x * rows + y] = (byte) SpriteType.ENEMY_FLOWER.ordinal();
                             }
-                            this.levelTiles[x][y] = 18 + tempIndex;
+                            levelTiles.set(x, y, 18 + tempIndex);
                         }
                         break;
                     case '<':
                         //pipe top left
-                        this.levelTiles[x][y] = 18;
+                        levelTiles.set(x, y, 18);
                         break;
                     case '>':
                         //pipe top right
-                        this.levelTiles[x][y] = 19;
+                        levelTiles.set(x, y, 19);
                         break;
                     case '[':
                         //pipe body left
-                        this.levelTiles[x][y] = 20;
+                        levelTiles.set(x, y, 20);
                         break;
                     case ']':
                         //pipe body right
-                        this.levelTiles[x][y] = 21;
+                        levelTiles.set(x, y, 21);
                         break;
                 }
             }
         }
         if (!marioLocInit) {
             this.marioTileX = 0;
-            this.marioTileY = findFirstFloor(lines, this.marioTileX);
+            this.marioTileY = findFirstFloor(text, this.marioTileX);
         }
         if (!exitLocInit) {
-            this.exitTileX = lines[0].length() - 1;
-            this.exitTileY = findFirstFloor(lines, this.exitTileX);
+            this.exitTileX = this.tileWidth - 1;
+            this.exitTileY = findFirstFloor(text, this.exitTileX);
         }
         for (int y = this.exitTileY; y > Math.max(1, this.exitTileY - 11); y--) {
-            this.levelTiles[this.exitTileX][y] = 40;
+            levelTiles.set(this.exitTileX, y, 40);
         }
-        this.levelTiles[this.exitTileX][Math.max(1, this.exitTileY - 11)] = 39;
+        levelTiles.set(this.exitTileX, Math.max(1, this.exitTileY - 11), 39);
+        levelTiles.trackChanges();
+        this.levelTiles = levelTiles;
 
         if (visuals) {
-            this.graphics = new MarioTilemap(Assets.level, this.levelTiles);
-            this.flag = new MarioImage(Assets.level, 41);
-            this.flag.width = 16;
-            this.flag.height = 16;
+            this.initializeVisuals();
+        }
+    }
+
+    private void initializeVisuals() {
+        this.graphics = new MarioTilemap(Assets.level, this);
+        this.flag = new MarioImage(Assets.level, 41);
+        this.flag.width = 16;
+        this.flag.height = 16;
+    }
+
+    /**
+     * Create a level from its string, levels loaded by a MarioLevelCorpus are copied from their parsed
+     * template instead of being parsed again
+     *
+     * @param level   a string that constitutes the mario level
+     * @param visuals true if the level is going to be rendered
+     * @return a new level that can be changed freely
+     */
+    static MarioLevel create(String level, boolean visuals) {
+        MarioLevel template;
+        synchronized (templates) {
+            template = templates.get(level);
+        }
+        if (template == null) {
+            return new MarioLevel(level, visuals);
+        }
+        MarioLevel copy = template.clone();
+        if (visuals) {
+            copy.initializeVisuals();
+        }
+        return copy;
+    }
+
+    static void registerTemplate(String level, MarioLevel template) {
+        synchronized (templates) {
+            templates.put(level, template);
         }
     }
 
@@ -281,26 +363,52 @@ public class MarioLevel {
         level.marioTileY = this.marioTileY;
         level.exitTileX = this.exitTileX;
         level.exitTileY = this.exitTileY;
-        level.levelTiles = new int[this.levelTiles.length][this.levelTiles[0].length];
-        level.lastSpawnTime = new int[this.levelTiles.length][this.levelTiles[0].length];
-        for (int x = 0; x < level.levelTiles.length; x++) {
-            for (int y = 0; y < level.levelTiles[x].length; y++) {
-                level.levelTiles[x][y] = this.levelTiles[x][y];
-                level.lastSpawnTime[x][y] = this.lastSpawnTime[x][y];
-            }
-        }
+        level.levelTiles = this.levelTiles.copy();
         level.spriteTemplates = this.spriteTemplates;
+        level.spawnScanTick = this.spawnScanTick;
+        level.spawnScanMinX = this.spawnScanMinX;
+        level.spawnScanMaxX = this.spawnScanMaxX;
+        level.spawnScanMinY = this.spawnScanMinY;
+        level.spawnScanMaxY = this.spawnScanMaxY;
+        if (this.lastSpawnTicks != null) {
+            level.lastSpawnTicks = new HashMap<>(this.lastSpawnTicks);
+        }
         return level;
     }
 
-    public boolean isBlocking(int xTile, int yTile, float xa, float ya) {
-        int block = this.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
-        boolean blocking = features.contains(TileFeature.BLOCK_ALL);
-        blocking |= (ya < 0) && features.contains(TileFeature.BLOCK_UPPER);
-        blocking |= (ya > 0) && features.contains(TileFeature.BLOCK_LOWER);
+    void saveState(MarioSnapshot snapshot) {
+        snapshot.levelTiles = this.levelTiles.copy();
+    }
 
-        return blocking;
+    void loadState(MarioSnapshot snapshot) {
+        this.levelTiles = snapshot.levelTiles.share();
+        this.tileVersion += 1;
+    }
+
+    /**
+     * Save the spawn scan area and the ticks given to setLastSpawnTick, the world saves them with its own state
+     * because the undo steps of the forward model only save the world
+     */
+    void saveSpawnScan(MarioSnapshot snapshot) {
+        snapshot.spawnScanTick = this.spawnScanTick;
+        snapshot.spawnScanMinX = this.spawnScanMinX;
+        snapshot.spawnScanMaxX = this.spawnScanMaxX;
+        snapshot.spawnScanMinY = this.spawnScanMinY;
+        snapshot.spawnScanMaxY = this.spawnScanMaxY;
+        snapshot.lastSpawnTicks = this.lastSpawnTicks == null ? null : new HashMap<>(this.lastSpawnTicks);
+    }
+
+    void loadSpawnScan(MarioSnapshot snapshot) {
+        this.spawnScanTick = snapshot.spawnScanTick;
+        this.spawnScanMinX = snapshot.spawnScanMinX;
+        this.spawnScanMaxX = snapshot.spawnScanMaxX;
+        this.spawnScanMinY = snapshot.spawnScanMinY;
+        this.spawnScanMaxY = snapshot.spawnScanMaxY;
+        this.lastSpawnTicks = snapshot.lastSpawnTicks == null ? null : new HashMap<>(snapshot.lastSpawnTicks);
+    }
+
+    public boolean isBlocking(int xTile, int yTile, float xa, float ya) {
+        return TileFeature.isBlocking(this.getBlock(xTile, yTile), xa, ya);
     }
 
     public int getBlock(int xTile, int yTile) {
@@ -313,14 +421,23 @@ public class MarioLevel {
         if (yTile < 0 || yTile > this.tileHeight - 1) {
             return 0;
         }
-        return this.levelTiles[xTile][yTile];
+        return this.levelTiles.get(xTile, yTile);
     }
 
     public void setBlock(int xTile, int yTile, int index) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
-        this.levelTiles[xTile][yTile] = index;
+        if (this.journal != null) {
+            this.journal.recordTile(xTile, yTile, this.levelTiles.get(xTile, yTile));
+        }
+        this.levelTiles.set(xTile, yTile, index);
+        this.tileVersion += 1;
+    }
+
+    void revertBlock(int xTile, int yTile, int index) {
+        this.levelTiles.set(xTile, yTile, index);
+        this.tileVersion += 1;
     }
 
     public void setShiftIndex(int xTile, int yTile, int shift) {
@@ -334,42 +451,140 @@ public class MarioLevel {
         if (xTile < 0 || yTile < 0 || xTile >= this.tileWidth || yTile >= this.tileHeight) {
             return SpriteType.NONE;
         }
-        return this.spriteTemplates[xTile][yTile];
+        return spriteTypes[this.spriteTemplates[xTile * this.tileHeight + yTile]];
     }
 
+    /**
+     * @deprecated the world only keeps the tile area it scanned on its last update, a sprite tile inside
+     * that area returns the tick of that update and any other tile returns -40 unless setLastSpawnTick was used
+     */
+    @Deprecated
     public int getLastSpawnTick(int xTile, int yTile) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return 0;
         }
-        return this.lastSpawnTime[xTile][yTile];
+        if (this.lastSpawnTicks != null) {
+            Integer tick = this.lastSpawnTicks.get(xTile * this.tileHeight + yTile);
+            if (tick != null) {
+                return tick;
+            }
+        }
+        if (this.spriteTemplates[xTile * this.tileHeight + yTile] != 0 && this.isScanned(xTile, yTile)) {
+            return this.spawnScanTick;
+        }
+        return -40;
     }
 
+    /**
+     * @deprecated the tick is kept until the world scans the tile again, a tile spawns its sprite
+     * on that scan unless the tick is the one of the previous update
+     */
+    @Deprecated
     public void setLastSpawnTick(int xTile, int yTile, int tick) {
         if (xTile < 0 || yTile < 0 || xTile > this.tileWidth - 1 || yTile > this.tileHeight - 1) {
             return;
         }
-        this.lastSpawnTime[xTile][yTile] = tick;
+        if (this.lastSpawnTicks == null) {
+            this.lastSpawnTicks = new HashMap<>();
+        }
+        this.lastSpawnTicks.put(xTile * this.tileHeight + yTile, tick);
+    }
+
+    boolean isScanned(int xTile, int yTile) {
+        return xTile >= this.spawnScanMinX && xTile <= this.spawnScanMaxX
+                && yTile >= this.spawnScanMinY && yTile <= this.spawnScanMaxY;
+    }
+
+    /**
+     * Check if a sprite tile was scanned on the update before the current one, a tick given to
+     * setLastSpawnTick for the tile is used instead of the scanned area and then forgotten
+     */
+    boolean wasScannedBefore(int xTile, int yTile, int currentTick) {
+        if (this.lastSpawnTicks != null) {
+            Integer tick = this.lastSpawnTicks.remove(xTile * this.tileHeight + yTile);
+            if (this.lastSpawnTicks.isEmpty()) {
+                this.lastSpawnTicks = null;
+            }
+            if (tick != null) {
+                return tick == currentTick - 1;
+            }
+        }
+        return this.spawnScanTick == currentTick - 1 && this.isScanned(xTile, yTile);
+    }
+
+    void setScannedArea(int tick, int minX, int maxX, int minY, int maxY) {
+        this.spawnScanTick = tick;
+        this.spawnScanMinX = minX;
+        this.spawnScanMaxX = maxX;
+        this.spawnScanMinY = minY;
+        this.spawnScanMaxY = maxY;
     }
 
     public String getSpriteCode(int xTile, int yTile) {
         return xTile + "_" + yTile + "_" + this.getSpriteType(xTile, yTile).getValue();
     }
 
-    private boolean isSolid(char c) {
-        return c == 'X' || c == '#' || c == '@' || c == '!' || c == 'B' || c == 'C' ||
-                c == 'Q' || c == '<' || c == '>' || c == '[' || c == ']' || c == '?' ||
-                c == 'S' || c == 'U' || c == 'D' || c == '%' || c == 't' || c == 'T';
+    /**
+     * Get a number that identifies the sprite spawned from a certain tile. The x tile is packed
+     * in the upper 16 bits, the y tile in the next 10 bits and the sprite value in the lowest 6 bits.
+     *
+     * @param xTile the x tile position
+     * @param yTile the y tile position
+     * @return the spawn code of that tile or 0 if the tile doesn't spawn any sprite
+     */
+    public int getSpawnCode(int xTile, int yTile) {
+        SpriteType type = this.getSpriteType(xTile, yTile);
+        if (type == SpriteType.NONE) {
+            return 0;
+        }
+        return (xTile << 16) | (yTile << 6) | type.getValue();
+    }
+
+    /**
+     * Convert a spawn code into the same string that getSpriteCode returns for its tile
+     *
+     * @param spawnCode a spawn code returned by getSpawnCode
+     * @return the sprite code string or an empty string if the code is 0
+     */
+    public static String getSpriteCode(int spawnCode) {
+        if (spawnCode == 0) {
+            return "";
+        }
+        return (spawnCode >>> 16) + "_" + ((spawnCode >>> 6) & 1023) + "_" + (spawnCode & 63);
+    }
+
+    /**
+     * Convert a sprite code in the "x_y_type" form back into a spawn code
+     *
+     * @param spriteCode a sprite code returned by getSpriteCode
+     * @return the spawn code or 0 if the string isn't a sprite code
+     */
+    public static int getSpawnCode(String spriteCode) {
+        String[] parts = spriteCode == null ? new String[0] : spriteCode.split("_");
+        if (parts.length != 3) {
+            return 0;
+        }
+        try {
+            return (Integer.parseInt(parts[0]) << 16) | ((Integer.parseInt(parts[1]) & 1023) << 6)
+                    | (Integer.parseInt(parts[2]) & 63);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isPipe(char c) {
+        return c == 't' || c == 'T';
     }
 
-    private int findFirstFloor(String[] lines, int x) {
+    private static int findFirstFloor(LevelText text, int x) {
         boolean skipLines = true;
-        for (int i = lines.length - 1; i >= 0; i--) {
-            Character c = lines[i].charAt(x);
-            if (isSolid(c)) {
+        for (int i = text.lineCount - 1; i >= 0; i--) {
+            char c = text.get(x, i);
+            if (c < solid.length && solid[c]) {
                 skipLines = false;
                 continue;
             }
-            if (!skipLines && !isSolid(c)) {
+            if (!skipLines) {
                 return i;
             }
         }
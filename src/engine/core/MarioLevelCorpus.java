@@ -0,0 +1,174 @@
+package engine.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Set of levels read from a folder of level files, like the generated folders in levels, or from one
+ * packed file where levels are separated by an empty line. Files are memory mapped and every level is
+ * decoded and parsed only the first time it is asked for. Games started with the string returned by
+ * getLevel copy the parsed level instead of parsing it again, for as long as the corpus is alive.
+ */
+public class MarioLevelCorpus {
+    private final String[] names;
+    private final ByteBuffer[] sources;
+    private final AtomicReferenceArray<String> levels;
+
+    private MarioLevelCorpus(ArrayList<String> names, ArrayList<ByteBuffer> sources) {
+        this.names = names.toArray(new String[0]);
+        this.sources = sources.toArray(new ByteBuffer[0]);
+        this.levels = new AtomicReferenceArray<>(this.sources.length);
+    }
+
+    /**
+     * Open a folder of level files or a packed level file
+     *
+     * @param path a folder, all its .txt files are read in natural order (lvl-2 before lvl-10), or a file
+     *             holding one or more levels separated by empty lines
+     * @return the corpus, nothing is parsed yet
+     * @throws IOException if the files can't be mapped
+     */
+    public static MarioLevelCorpus open(Path path) throws IOException {
+        ArrayList<String> names = new ArrayList<>();
+        ArrayList<ByteBuffer> sources = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            ArrayList<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.txt")) {
+                for (Path file : stream) {
+                    if (Files.isRegularFile(file)) {
+                        files.add(file);
+                    }
+                }
+            }
+            files.sort(Comparator.comparing(file -> file.getFileName().toString(), MarioLevelCorpus::compareNames));
+            for (Path file : files) {
+                names.add(file.getFileName().toString());
+                sources.add(map(file));
+            }
+        } else {
+            ByteBuffer packed = map(path);
+            String name = path.getFileName().toString();
+            int start = 0;
+            int lineStart = 0;
+            int limit = packed.limit();
+            for (int i = 0; i <= limit; i++) {
+                if (i < limit && packed.get(i) != '\n') {
+                    continue;
+                }
+                int lineEnd = i > lineStart && packed.get(i - 1) == '\r' ? i - 1 : i;
+                if (lineEnd == lineStart || i == limit) {
+                    int end = lineEnd == lineStart ? lineStart : limit;
+                    if (end > start) {
+                        names.add(name + ":" + (names.size() + 1));
+                        sources.add(packed.slice(start, end - start));
+                    }
+                    start = i + 1;
+                }
+                lineStart = i + 1;
+            }
+        }
+        return new MarioLevelCorpus(names, sources);
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static int compareNames(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int startA = i;
+                int startB = j;
+                while (i < a.length() && Character.isDigit(a.charAt(i))) {
+                    i++;
+                }
+                while (j < b.length() && Character.isDigit(b.charAt(j))) {
+                    j++;
+                }
+                String numberA = a.substring(startA, i).replaceFirst("^0+(?=.)", "");
+                String numberB = b.substring(startB, j).replaceFirst("^0+(?=.)", "");
+                int compare = numberA.length() != numberB.length() ?
+                        Integer.compare(numberA.length(), numberB.length()) : numberA.compareTo(numberB);
+                if (compare != 0) {
+                    return compare;
+                }
+            } else {
+                if (ca != cb) {
+                    return Character.compare(ca, cb);
+                }
+                i++;
+                j++;
+            }
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    /**
+     * Get the number of levels in the corpus
+     *
+     * @return the number of levels
+     */
+    public int size() {
+        return this.sources.length;
+    }
+
+    /**
+     * Get the name of a level
+     *
+     * @param index the index of the level
+     * @return the file name, or the packed file name followed by the position of the level in it
+     */
+    public String getName(int index) {
+        return this.names[index];
+    }
+
+    /**
+     * Get a level to give to MarioGame, MarioBatch or MarioLevelGenerator code that takes level strings.
+     * The same string is returned on every call and it is parsed once the first time it is asked for.
+     *
+     * @param index the index of the level
+     * @return a string that constitutes the mario level
+     */
+    public String getLevel(int index) {
+        String level = this.levels.get(index);
+        if (level != null) {
+            return level;
+        }
+        ByteBuffer source = this.sources[index];
+        byte[] bytes = new byte[source.limit()];
+        source.get(0, bytes);
+        level = new String(bytes, StandardCharsets.UTF_8);
+        MarioLevel template = new MarioLevel(level, false);
+        if (this.levels.compareAndSet(index, null, level)) {
+            MarioLevel.registerTemplate(level, template);
+            return level;
+        }
+        return this.levels.get(index);
+    }
+
+    /**
+     * Create a level that can be changed freely, its tiles are shared with the parsed template until written
+     *
+     * @param index   the index of the level
+     * @param visuals true if the level is going to be rendered
+     * @return a new level
+     */
+    public MarioLevel createLevel(int index, boolean visuals) {
+        return MarioLevel.create(this.getLevel(index), visuals);
+    }
+}
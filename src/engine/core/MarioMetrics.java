@@ -0,0 +1,194 @@
+package engine.core;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of named counters and histograms filled by the engine when profiling is enabled.
+ * Counters can be incremented from any thread, so agents simulating on several threads are counted
+ * correctly. Give the registry to MarioGame.setMetrics or MarioWorld.setMetrics to enable it.
+ */
+public class MarioMetrics {
+    /**
+     * number of world updates that ran their phases
+     */
+    public static final String TICKS = "world.ticks";
+    /**
+     * time to remove the sprites that left the screen, and number removed
+     */
+    public static final String CULL = "world.cull";
+    /**
+     * time to update the level and scan the visible tiles for sprites to spawn, and number spawned
+     */
+    public static final String SPAWN_SCAN = "world.spawnScan";
+    /**
+     * time to call update on every alive sprite, and number updated
+     */
+    public static final String SPRITE_UPDATE = "world.spriteUpdate";
+    /**
+     * time to call collideCheck on every alive sprite, and number checked
+     */
+    public static final String COLLIDE_CHECK = "world.collideCheck";
+    /**
+     * time to check the moving shells against the other sprites, and number of pairs checked
+     */
+    public static final String SHELL_CHECK = "world.shellCheck";
+    /**
+     * time to check the fireballs against the other sprites, and number of pairs checked
+     */
+    public static final String FIREBALL_CHECK = "world.fireballCheck";
+    /**
+     * time to merge the added and removed sprites into the sprite list, and number merged
+     */
+    public static final String MERGE = "world.merge";
+    /**
+     * time of the whole world update
+     */
+    public static final String TICK = "world.tick";
+    /**
+     * number of forward model clones
+     */
+    public static final String CLONES = "forwardModel.clones";
+    /**
+     * number of forward model clones made by the agent during each game tick
+     */
+    public static final String CLONES_PER_TICK = "agent.clonesPerTick";
+    /**
+     * nanoseconds taken by each call to the agent getActions
+     */
+    public static final String AGENT_LATENCY = "agent.latency";
+    /**
+     * number of getActions calls that took longer than MarioGame.maxTime + MarioGame.graceTime
+     */
+    public static final String AGENT_OVERRUNS = "agent.overruns";
+
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MarioHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Get a histogram, it is created the first time it is asked for
+     *
+     * @param name the name of the histogram
+     * @return the histogram with that name
+     */
+    public MarioHistogram getHistogram(String name) {
+        return this.histograms.computeIfAbsent(name, key -> new MarioHistogram());
+    }
+
+    /**
+     * Add to a counter, it is created the first time it is changed
+     *
+     * @param name  the name of the counter
+     * @param delta the value to add
+     */
+    public void increment(String name, long delta) {
+        this.counters.computeIfAbsent(name, key -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Get the value of a counter
+     *
+     * @param name the name of the counter
+     * @return the value of the counter, 0 if it was never changed
+     */
+    public long getCounter(String name) {
+        LongAdder counter = this.counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Get all the counters sorted by name
+     *
+     * @return a copy of the counter values
+     */
+    public Map<String, Long> getCounters() {
+        TreeMap<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : this.counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    /**
+     * Get all the histograms sorted by name
+     *
+     * @return the histograms, they keep being filled while the engine uses this registry
+     */
+    public Map<String, MarioHistogram> getHistograms() {
+        return new TreeMap<>(this.histograms);
+    }
+
+    /**
+     * Add all the counters and histograms of another registry to this one, used to combine games
+     *
+     * @param other the registry to add
+     */
+    public void merge(MarioMetrics other) {
+        for (Map.Entry<String, Long> entry : other.getCounters().entrySet()) {
+            this.increment(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, MarioHistogram> entry : other.getHistograms().entrySet()) {
+            this.getHistogram(entry.getKey()).merge(entry.getValue());
+        }
+    }
+
+    /**
+     * Write the registry as CSV, one line per counter and per histogram
+     *
+     * @return the CSV text with a header line
+     */
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder("type,name,count,sum,min,max,mean,p50,p90,p99\n");
+        for (Map.Entry<String, Long> entry : this.getCounters().entrySet()) {
+            csv.append("counter,").append(entry.getKey()).append(',').append(entry.getValue())
+                    .append(",,,,,,,\n");
+        }
+        for (Map.Entry<String, MarioHistogram> entry : this.getHistograms().entrySet()) {
+            MarioHistogram histogram = entry.getValue();
+            csv.append("histogram,").append(entry.getKey())
+                    .append(',').append(histogram.getCount())
+                    .append(',').append(histogram.getSum())
+                    .append(',').append(histogram.getMin())
+                    .append(',').append(histogram.getMax())
+                    .append(',').append(histogram.getMean())
+                    .append(',').append(histogram.getPercentile(50))
+                    .append(',').append(histogram.getPercentile(90))
+                    .append(',').append(histogram.getPercentile(99))
+                    .append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Write the registry as a JSON object with a "counters" and a "histograms" object
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, Long> entry : this.getCounters().entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, MarioHistogram> entry : this.getHistograms().entrySet()) {
+            MarioHistogram histogram = entry.getValue();
+            json.append(separator).append('"').append(entry.getKey()).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"sum\":").append(histogram.getSum())
+                    .append(",\"min\":").append(histogram.getMin())
+                    .append(",\"max\":").append(histogram.getMax())
+                    .append(",\"mean\":").append(histogram.getMean())
+                    .append(",\"p50\":").append(histogram.getPercentile(50))
+                    .append(",\"p90\":").append(histogram.getPercentile(90))
+                    .append(",\"p99\":").append(histogram.getPercentile(99))
+                    .append('}');
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+}
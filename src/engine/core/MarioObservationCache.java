@@ -0,0 +1,132 @@
+package engine.core;
+
+/**
+ * Cache for the observation grids of MarioWorld. A scene grid only depends on its center tile, its
+ * detail level and the level tiles, so it is kept until a tile is written and when only the center
+ * column changes the columns are shifted and just the new ones are read from the level. An enemies
+ * grid is kept until the sprites change, which happens every update. Callers always get a copy.
+ */
+class MarioObservationCache {
+    private static final int DETAILS = 3;
+
+    private final MarioWorld world;
+    // scene grids for each detail, the first half clamps rows to the level like getSceneObservation,
+    // the second half leaves rows outside the level empty like getMergedObservation
+    private final int[][][] scenes = new int[2 * DETAILS][][];
+    private final int[] sceneX = new int[2 * DETAILS];
+    private final int[] sceneY = new int[2 * DETAILS];
+    private final int[] sceneVersion = new int[2 * DETAILS];
+    private final int[][][] enemies = new int[DETAILS][][];
+    private final int[] enemiesX = new int[DETAILS];
+    private final int[] enemiesY = new int[DETAILS];
+    private final int[] enemiesVersion = new int[DETAILS];
+    private final int[][] rotated = new int[MarioGame.tileWidth][];
+
+    MarioObservationCache(MarioWorld world) {
+        this.world = world;
+    }
+
+    /**
+     * Write the scene grid around a center tile into a buffer
+     *
+     * @param centerX   the x center tile
+     * @param centerY   the y center tile
+     * @param detail    the scene detail level
+     * @param clampRows true to repeat the first and last level rows outside the level, false to leave them empty
+     * @param ret       the buffer that receives the grid
+     */
+    void getScene(int centerX, int centerY, int detail, boolean clampRows, int[][] ret) {
+        if (detail < 0 || detail >= DETAILS) {
+            for (int obsX = 0; obsX < MarioGame.tileWidth; obsX++) {
+                this.fillSceneColumn(ret[obsX], centerX - MarioGame.tileWidth / 2 + obsX, centerY, detail, clampRows);
+            }
+            return;
+        }
+        int slot = clampRows ? detail : DETAILS + detail;
+        int[][] scene = this.scenes[slot];
+        int version = this.world.level.tileVersion;
+        if (scene == null) {
+            scene = new int[MarioGame.tileWidth][MarioGame.tileHeight];
+            this.scenes[slot] = scene;
+            this.fillScene(scene, 0, MarioGame.tileWidth, centerX, centerY, detail, clampRows);
+        } else if (this.sceneVersion[slot] != version || this.sceneY[slot] != centerY) {
+            this.fillScene(scene, 0, MarioGame.tileWidth, centerX, centerY, detail, clampRows);
+        } else if (this.sceneX[slot] != centerX) {
+            int shift = centerX - this.sceneX[slot];
+            if (Math.abs(shift) >= MarioGame.tileWidth) {
+                this.fillScene(scene, 0, MarioGame.tileWidth, centerX, centerY, detail, clampRows);
+            } else if (shift > 0) {
+                this.rotateLeft(scene, shift);
+                this.fillScene(scene, MarioGame.tileWidth - shift, MarioGame.tileWidth, centerX, centerY, detail, clampRows);
+            } else {
+                this.rotateLeft(scene, MarioGame.tileWidth + shift);
+                this.fillScene(scene, 0, -shift, centerX, centerY, detail, clampRows);
+            }
+        }
+        this.sceneX[slot] = centerX;
+        this.sceneY[slot] = centerY;
+        this.sceneVersion[slot] = version;
+        copy(scene, ret);
+    }
+
+    /**
+     * Write the enemies grid around a center tile into a buffer
+     *
+     * @param centerX the x center tile
+     * @param centerY the y center tile
+     * @param detail  the enemies detail level
+     * @param ret     the buffer that receives the grid
+     */
+    void getEnemies(int centerX, int centerY, int detail, int[][] ret) {
+        if (detail < 0 || detail >= DETAILS) {
+            this.world.fillEnemiesObservation(centerX, centerY, detail, ret);
+            return;
+        }
+        int[][] grid = this.enemies[detail];
+        int version = this.world.getSpriteVersion();
+        if (grid == null) {
+            grid = new int[MarioGame.tileWidth][MarioGame.tileHeight];
+            this.enemies[detail] = grid;
+            this.world.fillEnemiesObservation(centerX, centerY, detail, grid);
+        } else if (this.enemiesVersion[detail] != version || this.enemiesX[detail] != centerX || this.enemiesY[detail] != centerY) {
+            this.world.fillEnemiesObservation(centerX, centerY, detail, grid);
+        }
+        this.enemiesX[detail] = centerX;
+        this.enemiesY[detail] = centerY;
+        this.enemiesVersion[detail] = version;
+        copy(grid, ret);
+    }
+
+    private void fillScene(int[][] scene, int from, int to, int centerX, int centerY, int detail, boolean clampRows) {
+        for (int obsX = from; obsX < to; obsX++) {
+            this.fillSceneColumn(scene[obsX], centerX - MarioGame.tileWidth / 2 + obsX, centerY, detail, clampRows);
+        }
+    }
+
+    private void fillSceneColumn(int[] column, int x, int centerY, int detail, boolean clampRows) {
+        MarioLevel level = this.world.level;
+        int[] table = MarioForwardModel.getBlockGeneralizationTable(detail);
+        int top = centerY - MarioGame.tileHeight / 2;
+        for (int obsY = 0; obsY < MarioGame.tileHeight; obsY++) {
+            int y = top + obsY;
+            if (clampRows) {
+                y = Math.max(0, Math.min(level.tileHeight - 1, y));
+            }
+            int tile = level.getBlock(x, y);
+            column[obsY] = table != null && tile >= 0 && tile < table.length ?
+                    table[tile] : MarioForwardModel.getBlockValueGeneralization(tile, detail);
+        }
+    }
+
+    private void rotateLeft(int[][] scene, int shift) {
+        System.arraycopy(scene, 0, this.rotated, 0, shift);
+        System.arraycopy(scene, shift, scene, 0, scene.length - shift);
+        System.arraycopy(this.rotated, 0, scene, scene.length - shift, shift);
+    }
+
+    private static void copy(int[][] from, int[][] to) {
+        for (int i = 0; i < from.length; i++) {
+            System.arraycopy(from[i], 0, to[i], 0, from[i].length);
+        }
+    }
+}
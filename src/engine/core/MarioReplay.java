@@ -0,0 +1,290 @@
+package engine.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import engine.helper.EventType;
+import engine.helper.MarioActions;
+
+/**
+ * Packed record of a played game, enough to simulate it again without the agent. Every tick takes
+ * one byte for the buttons, mario mode and ground flag, followed by varints for the tick time and the
+ * change in the float bits of mario position, so the positions are exact. Game events are varints too.
+ *
+ * @see MarioReplayer
+ */
+public final class MarioReplay {
+    private static final int MAGIC = 0x4D52504C;
+    private static final int VERSION = 1;
+    private static final int ACTION_BITS = 5;
+    private static final EventType[] eventTypes = EventType.values();
+
+    private final String level;
+    private final int timer;
+    private final int initialMarioState;
+    private final MarioEvent[] killEvents;
+    private final int tickCount;
+    // one byte per tick, bits 0-4 are the buttons, bits 5-6 mario mode and bit 7 the ground flag
+    private final byte[] ticks;
+    // time and position changes of every tick
+    private final byte[] movement;
+    private final int eventCount;
+    private final byte[] events;
+
+    MarioReplay(String level, int timer, int initialMarioState, MarioEvent[] killEvents, int tickCount,
+                byte[] ticks, byte[] movement, int eventCount, byte[] events) {
+        this.level = level;
+        this.timer = timer;
+        this.initialMarioState = initialMarioState;
+        this.killEvents = killEvents;
+        this.tickCount = tickCount;
+        this.ticks = ticks;
+        this.movement = movement;
+        this.eventCount = eventCount;
+        this.events = events;
+    }
+
+    static int packTick(boolean[] actions, int marioState, boolean onGround) {
+        int packed = 0;
+        for (int i = 0; i < ACTION_BITS && i < actions.length; i++) {
+            if (actions[i]) {
+                packed |= 1 << i;
+            }
+        }
+        return packed | (marioState & 3) << ACTION_BITS | (onGround ? 1 : 0) << (ACTION_BITS + 2);
+    }
+
+    static EventType getEventType(int value) {
+        for (EventType type : eventTypes) {
+            if (type.getValue() == value) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown event type " + value + " in mario replay");
+    }
+
+    public String getLevel() {
+        return this.level;
+    }
+
+    public int getTimer() {
+        return this.timer;
+    }
+
+    /**
+     * Get the state mario started the game in
+     *
+     * @return 0 small mario, 1 large mario, and 2 fire mario
+     */
+    public int getInitialMarioState() {
+        return this.initialMarioState;
+    }
+
+    /**
+     * Get the events that killed mario in the recorded game
+     *
+     * @return the kill events given to MarioGame, null if there were none
+     */
+    public MarioEvent[] getKillEvents() {
+        return this.killEvents == null ? null : this.killEvents.clone();
+    }
+
+    /**
+     * Get the number of times the agent was asked for actions
+     *
+     * @return the number of recorded ticks
+     */
+    public int getNumTicks() {
+        return this.tickCount;
+    }
+
+    /**
+     * Get the buttons the agent pressed on a tick
+     *
+     * @param tick the index of the tick, from 0 to getNumTicks() - 1
+     * @return a new array with the state of every button
+     */
+    public boolean[] getActions(int tick) {
+        int packed = this.ticks[tick];
+        boolean[] actions = new boolean[MarioActions.numberOfActions()];
+        for (int i = 0; i < ACTION_BITS && i < actions.length; i++) {
+            actions[i] = (packed & 1 << i) != 0;
+        }
+        return actions;
+    }
+
+    /**
+     * Get mario mode after a tick
+     *
+     * @param tick the index of the tick, from 0 to getNumTicks() - 1
+     * @return 0 small mario, 1 large mario, and 2 fire mario
+     */
+    public int getMarioState(int tick) {
+        return this.ticks[tick] >> ACTION_BITS & 3;
+    }
+
+    public boolean getMarioOnGround(int tick) {
+        return (this.ticks[tick] & 1 << (ACTION_BITS + 2)) != 0;
+    }
+
+    /**
+     * Decode every tick into the agent events that MarioResult keeps for a full recording
+     *
+     * @return one event per tick
+     */
+    public ArrayList<MarioAgentEvent> getAgentEvents() {
+        ArrayList<MarioAgentEvent> agentEvents = new ArrayList<>(this.tickCount);
+        MarioReplayBuffer buffer = new MarioReplayBuffer(this.movement, 0);
+        int time = 0;
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < this.tickCount; i++) {
+            time += (int) buffer.readSigned();
+            x += (int) buffer.readSigned();
+            y += (int) buffer.readSigned();
+            agentEvents.add(new MarioAgentEvent(this.getActions(i), Float.intBitsToFloat(x), Float.intBitsToFloat(y),
+                    this.getMarioState(i), this.getMarioOnGround(i), time));
+        }
+        return agentEvents;
+    }
+
+    /**
+     * Decode the recorded game events
+     *
+     * @return the game events in the order they happened
+     */
+    public ArrayList<MarioEvent> getGameEvents() {
+        ArrayList<MarioEvent> gameEvents = new ArrayList<>(this.eventCount);
+        MarioReplayBuffer buffer = new MarioReplayBuffer(this.events, 0);
+        int time = 0;
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < this.eventCount; i++) {
+            EventType type = getEventType((int) buffer.readUnsigned());
+            int param = (int) buffer.readSigned();
+            x += (int) buffer.readSigned();
+            y += (int) buffer.readSigned();
+            int state = (int) buffer.readUnsigned();
+            time += (int) buffer.readSigned();
+            gameEvents.add(new MarioEvent(type, param, Float.intBitsToFloat(x), Float.intBitsToFloat(y), state, time));
+        }
+        return gameEvents;
+    }
+
+    /**
+     * Encode the replay
+     *
+     * @return the bytes that fromBytes reads back
+     */
+    public byte[] toBytes() {
+        byte[] levelBytes = this.level.getBytes(StandardCharsets.UTF_8);
+        MarioReplayBuffer buffer = new MarioReplayBuffer(levelBytes.length + this.ticks.length
+                + this.movement.length + this.events.length + 64);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            buffer.writeByte(MAGIC >> shift);
+        }
+        buffer.writeUnsigned(VERSION);
+        buffer.writeUnsigned(levelBytes.length);
+        buffer.writeBytes(levelBytes, levelBytes.length);
+        buffer.writeSigned(this.timer);
+        buffer.writeUnsigned(this.initialMarioState);
+        if (this.killEvents == null) {
+            buffer.writeUnsigned(0);
+        } else {
+            buffer.writeUnsigned(this.killEvents.length + 1);
+            for (MarioEvent event : this.killEvents) {
+                buffer.writeUnsigned(event.getEventType());
+                buffer.writeSigned(event.getEventParam());
+            }
+        }
+        buffer.writeUnsigned(this.tickCount);
+        buffer.writeBytes(this.ticks, this.ticks.length);
+        buffer.writeUnsigned(this.movement.length);
+        buffer.writeBytes(this.movement, this.movement.length);
+        buffer.writeUnsigned(this.eventCount);
+        buffer.writeUnsigned(this.events.length);
+        buffer.writeBytes(this.events, this.events.length);
+        return buffer.toArray();
+    }
+
+    /**
+     * Decode a replay
+     *
+     * @param bytes bytes written by toBytes
+     * @return the replay
+     * @throws IllegalArgumentException if the bytes are not a valid replay
+     */
+    public static MarioReplay fromBytes(byte[] bytes) {
+        MarioReplayBuffer buffer = new MarioReplayBuffer(bytes, 0);
+        int magic = 0;
+        for (int i = 0; i < 4; i++) {
+            magic = magic << 8 | buffer.readByte();
+        }
+        if (magic != MAGIC) {
+            throw new IllegalArgumentException("Not a mario replay");
+        }
+        long version = buffer.readUnsigned();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported mario replay version " + version);
+        }
+        String level = new String(buffer.readBytes((int) buffer.readUnsigned()), StandardCharsets.UTF_8);
+        int timer = (int) buffer.readSigned();
+        int marioState = (int) buffer.readUnsigned();
+        int killCount = (int) buffer.readUnsigned();
+        MarioEvent[] killEvents = null;
+        if (killCount > 0) {
+            killEvents = new MarioEvent[killCount - 1];
+            for (int i = 0; i < killEvents.length; i++) {
+                EventType type = getEventType((int) buffer.readUnsigned());
+                killEvents[i] = new MarioEvent(type, (int) buffer.readSigned());
+            }
+        }
+        int tickCount = (int) buffer.readUnsigned();
+        byte[] ticks = buffer.readBytes(tickCount);
+        byte[] movement = buffer.readBytes((int) buffer.readUnsigned());
+        int eventCount = (int) buffer.readUnsigned();
+        byte[] events = buffer.readBytes((int) buffer.readUnsigned());
+        return new MarioReplay(level, timer, marioState, killEvents, tickCount, ticks, movement, eventCount, events);
+    }
+
+    /**
+     * Write the replay to a file, replacing its content
+     *
+     * @param path the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void write(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(this.toBytes());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Read a replay written with write
+     *
+     * @param path the file to read
+     * @return the replay
+     * @throws IOException if the file can't be read or is not a valid replay
+     */
+    public static MarioReplay read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocate((int) channel.size());
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+            }
+            try {
+                return fromBytes(bytes.array());
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte array with the variable length integer encoding used by MarioReplay. Unsigned values
+ * use 7 bits per byte, signed values are zigzag encoded first so small negative values stay small.
+ */
+class MarioReplayBuffer {
+    private byte[] data;
+    private int size;
+    private int position;
+
+    MarioReplayBuffer(int capacity) {
+        this.data = new byte[Math.max(16, capacity)];
+    }
+
+    MarioReplayBuffer(byte[] data, int position) {
+        this.data = data;
+        this.size = data.length;
+        this.position = position;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int getPosition() {
+        return this.position;
+    }
+
+    byte[] toArray() {
+        return Arrays.copyOf(this.data, this.size);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.size + extra > this.data.length) {
+            this.data = Arrays.copyOf(this.data, Math.max(this.size + extra, this.data.length * 2));
+        }
+    }
+
+    void writeByte(int value) {
+        this.ensureCapacity(1);
+        this.data[this.size++] = (byte) value;
+    }
+
+    void writeBytes(byte[] bytes, int length) {
+        this.ensureCapacity(length);
+        System.arraycopy(bytes, 0, this.data, this.size, length);
+        this.size += length;
+    }
+
+    void writeUnsigned(long value) {
+        this.ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.data[this.size++] = (byte) value;
+    }
+
+    void writeSigned(long value) {
+        this.writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    int readByte() {
+        if (this.position >= this.size) {
+            throw new IllegalArgumentException("Truncated mario replay");
+        }
+        return this.data[this.position++] & 0xFF;
+    }
+
+    byte[] readBytes(int length) {
+        if (length < 0 || this.position + length > this.size) {
+            throw new IllegalArgumentException("Truncated mario replay");
+        }
+        byte[] bytes = Arrays.copyOfRange(this.data, this.position, this.position + length);
+        this.position += length;
+        return bytes;
+    }
+
+    void skip(int length) {
+        if (length < 0 || this.position + length > this.size) {
+            throw new IllegalArgumentException("Truncated mario replay");
+        }
+        this.position += length;
+    }
+
+    long readUnsigned() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in mario replay");
+    }
+
+    long readSigned() {
+        long value = this.readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,68 @@
+package engine.core;
+
+import java.util.ArrayList;
+
+/**
+ * Packs the ticks of a running game into a MarioReplay, used by MarioGame when the recording level
+ * asks for a replay. Nothing is allocated per tick except when a buffer has to grow.
+ */
+class MarioReplayRecorder {
+    private final String level;
+    private final int timer;
+    private final int marioState;
+    private final MarioEvent[] killEvents;
+
+    private final MarioReplayBuffer ticks = new MarioReplayBuffer(1024);
+    private final MarioReplayBuffer movement = new MarioReplayBuffer(4096);
+    private final MarioReplayBuffer events = new MarioReplayBuffer(256);
+    private int tickCount;
+    private int lastTime;
+    private int lastX;
+    private int lastY;
+    private int eventCount;
+    private int lastEventTime;
+    private int lastEventX;
+    private int lastEventY;
+
+    MarioReplayRecorder(String level, int timer, int marioState, MarioEvent[] killEvents) {
+        this.level = level;
+        this.timer = timer;
+        this.marioState = marioState;
+        this.killEvents = killEvents == null ? null : killEvents.clone();
+    }
+
+    void recordTick(boolean[] actions, float x, float y, int marioState, boolean onGround, int time) {
+        this.ticks.writeByte(MarioReplay.packTick(actions, marioState, onGround));
+        int xBits = Float.floatToIntBits(x);
+        int yBits = Float.floatToIntBits(y);
+        this.movement.writeSigned(time - this.lastTime);
+        this.movement.writeSigned(xBits - this.lastX);
+        this.movement.writeSigned(yBits - this.lastY);
+        this.lastTime = time;
+        this.lastX = xBits;
+        this.lastY = yBits;
+        this.tickCount += 1;
+    }
+
+    void recordEvents(ArrayList<MarioEvent> gameEvents) {
+        for (MarioEvent event : gameEvents) {
+            int xBits = Float.floatToIntBits(event.getMarioX());
+            int yBits = Float.floatToIntBits(event.getMarioY());
+            this.events.writeUnsigned(event.getEventType());
+            this.events.writeSigned(event.getEventParam());
+            this.events.writeSigned(xBits - this.lastEventX);
+            this.events.writeSigned(yBits - this.lastEventY);
+            this.events.writeUnsigned(event.getMarioState());
+            this.events.writeSigned(event.getTime() - this.lastEventTime);
+            this.lastEventTime = event.getTime();
+            this.lastEventX = xBits;
+            this.lastEventY = yBits;
+            this.eventCount += 1;
+        }
+    }
+
+    MarioReplay finish() {
+        return new MarioReplay(this.level, this.timer, this.marioState, this.killEvents, this.tickCount,
+                this.ticks.toArray(), this.movement.toArray(), this.eventCount, this.events.toArray());
+    }
+}
@@ -0,0 +1,99 @@
+package engine.core;
+
+import java.util.ArrayList;
+
+import engine.helper.MarioActions;
+
+/**
+ * Simulates a MarioReplay again without the agent, the world is rebuilt exactly like MarioGame
+ * builds it so every tick ends in the recorded state. A snapshot is kept every KEYFRAME_INTERVAL
+ * ticks so seeking back only simulates the ticks after the closest one.
+ */
+public class MarioReplayer {
+    /**
+     * number of ticks between the snapshots used by seek
+     */
+    public static final int KEYFRAME_INTERVAL = 100;
+
+    private final MarioReplay replay;
+    private final MarioForwardModel model;
+    private final ArrayList<MarioSnapshot> keyframes = new ArrayList<>();
+    private int tick;
+
+    /**
+     * Create a replayer positioned before the first recorded tick
+     *
+     * @param replay the replay to simulate
+     */
+    public MarioReplayer(MarioReplay replay) {
+        this.replay = replay;
+        MarioWorld world = new MarioWorld(replay.getKillEvents());
+        world.visuals = false;
+        world.initializeLevel(replay.getLevel(), 1000 * replay.getTimer());
+        world.mario.isLarge = replay.getInitialMarioState() > 0;
+        world.mario.isFire = replay.getInitialMarioState() > 1;
+        world.update(new boolean[MarioActions.numberOfActions()]);
+        this.model = new MarioForwardModel(world);
+        this.keyframes.add(this.model.snapshot());
+    }
+
+    public MarioReplay getReplay() {
+        return this.replay;
+    }
+
+    /**
+     * Get the number of recorded ticks already simulated
+     *
+     * @return the current tick, between 0 and getNumTicks()
+     */
+    public int getTick() {
+        return this.tick;
+    }
+
+    public int getNumTicks() {
+        return this.replay.getNumTicks();
+    }
+
+    /**
+     * Simulate the next recorded tick
+     *
+     * @return false if the replay was already at its end
+     */
+    public boolean step() {
+        if (this.tick >= this.replay.getNumTicks()) {
+            return false;
+        }
+        this.model.advance(this.replay.getActions(this.tick));
+        this.tick += 1;
+        if (this.tick % KEYFRAME_INTERVAL == 0 && this.keyframes.size() == this.tick / KEYFRAME_INTERVAL) {
+            this.keyframes.add(this.model.snapshot());
+        }
+        return true;
+    }
+
+    /**
+     * Move the replay to any tick, going back restores the closest earlier snapshot
+     *
+     * @param tick the number of recorded ticks that should be simulated, clamped to the replay length
+     */
+    public void seek(int tick) {
+        tick = Math.max(0, Math.min(this.replay.getNumTicks(), tick));
+        int keyframe = Math.min(tick / KEYFRAME_INTERVAL, this.keyframes.size() - 1);
+        if (tick < this.tick || keyframe * KEYFRAME_INTERVAL > this.tick) {
+            this.model.restore(this.keyframes.get(keyframe));
+            this.tick = keyframe * KEYFRAME_INTERVAL;
+        }
+        while (this.tick < tick) {
+            this.step();
+        }
+    }
+
+    /**
+     * Get the state of the game at the current tick
+     *
+     * @return a copy of the replayed forward model that can be changed freely
+     */
+    public MarioForwardModel getModel() {
+        return this.model.clone();
+    }
+}
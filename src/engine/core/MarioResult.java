@@ -2,14 +2,17 @@ package engine.core;
 
 import java.util.ArrayList;
 
-import engine.helper.EventType;
 import engine.helper.GameStatus;
-import engine.helper.SpriteType;
 
 public class MarioResult {
     private MarioWorld world;
     private ArrayList<MarioEvent> gameEvents;
     private ArrayList<MarioAgentEvent> agentEvents;
+    private MarioStatistics statistics;
+    private MarioMetrics metrics;
+    private MarioHistogram agentLatency = new MarioHistogram();
+    private int agentOverruns = 0;
+    private MarioReplay replay;
 
     /**
      * Create a mario result object
@@ -22,6 +25,87 @@ public class MarioResult {
         this.world = world;
         this.gameEvents = gameEvents;
         this.agentEvents = agentEvents;
+        this.statistics = new MarioStatistics();
+        this.statistics.addAll(gameEvents);
+    }
+
+    /**
+     * Create a mario result object for a profiled game
+     *
+     * @param world       the current level world that is being used. This class uses the world object to get cleaner statistics.
+     * @param gameEvents  the events that happens in the playthrough of the game
+     * @param agentEvents the events that happens in the playthrough of the game
+     * @param metrics     the profiling registry of the game, null when the game was not profiled
+     */
+    public MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents, MarioMetrics metrics) {
+        this(world, gameEvents, agentEvents);
+        this.metrics = metrics;
+    }
+
+    MarioResult(MarioWorld world, ArrayList<MarioEvent> gameEvents, ArrayList<MarioAgentEvent> agentEvents,
+                MarioStatistics statistics, MarioMetrics metrics) {
+        this.world = world;
+        this.gameEvents = gameEvents;
+        this.agentEvents = agentEvents;
+        this.statistics = statistics;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get the profiling measurements of the game
+     *
+     * @return the registry given to MarioGame.setMetrics, null when the game was not profiled
+     */
+    public MarioMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    void setAgentTiming(MarioHistogram agentLatency, int agentOverruns) {
+        this.agentLatency = agentLatency;
+        this.agentOverruns = agentOverruns;
+    }
+
+    void setReplay(MarioReplay replay) {
+        this.replay = replay;
+    }
+
+    /**
+     * Get the packed record of the game that MarioReplayer can simulate again
+     *
+     * @return the replay, null unless the game was recorded with RecordingLevel.REPLAY
+     */
+    public MarioReplay getReplay() {
+        return this.replay;
+    }
+
+    /**
+     * Get how long the agent took to return its actions, it is measured on every game
+     *
+     * @return histogram of the getActions calls in nanoseconds
+     */
+    public MarioHistogram getAgentLatency() {
+        return this.agentLatency;
+    }
+
+    /**
+     * Get the number of ticks where the agent took longer than its budget plus the grace time
+     *
+     * @return the number of getActions calls longer than MarioGame.maxTime + MarioGame.graceTime milliseconds
+     */
+    public int getAgentOverruns() {
+        return this.agentOverruns;
+    }
+
+    /**
+     * Get the agent timing in a registry so it can be exported with toCsv or toJson
+     *
+     * @return a new registry holding the agent latency histogram and overrun counter
+     */
+    public MarioMetrics getAgentTimingMetrics() {
+        MarioMetrics timing = new MarioMetrics();
+        timing.getHistogram(MarioMetrics.AGENT_LATENCY).merge(this.agentLatency);
+        timing.increment(MarioMetrics.AGENT_OVERRUNS, this.agentOverruns);
+        return timing;
     }
 
     /**
@@ -68,9 +152,10 @@ public class MarioResult {
     }
 
     /**
-     * Get all the game events that happen in the game
+     * Get all the game events that happen in the game, the statistics getters don't need them
      *
-     * @return an arrayList of all possible events that happened in a mario game
+     * @return an arrayList of all possible events that happened in a mario game, empty unless the game
+     * was recorded with RecordingLevel.FULL
      */
     public ArrayList<MarioEvent> getGameEvents() {
         return this.gameEvents;
@@ -79,7 +164,8 @@ public class MarioResult {
     /**
      * Get all the actions that the agent has been taking during the game
      *
-     * @return an arraylist that contains all the actions the agent has taken during game play
+     * @return an arraylist that contains all the actions the agent has taken during game play, empty unless
+     * the game was recorded with RecordingLevel.FULL
      */
     public ArrayList<MarioAgentEvent> getAgentEvents() {
         return this.agentEvents;
@@ -91,14 +177,7 @@ public class MarioResult {
      * @return number of enemies killed in the game
      */
     public int getKillsTotal() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue() || e.getEventType() == EventType.FIRE_KILL.getValue() ||
-                    e.getEventType() == EventType.FALL_KILL.getValue() || e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKillsTotal();
     }
 
     /**
@@ -107,13 +186,7 @@ public class MarioResult {
      * @return number of enemies killed by fireballs
      */
     public int getKillsByFire() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FIRE_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKillsByFire();
     }
 
     /**
@@ -122,13 +195,7 @@ public class MarioResult {
      * @return number of enemies killed by stomping
      */
     public int getKillsByStomp() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.STOMP_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKillsByStomp();
     }
 
     /**
@@ -137,13 +204,7 @@ public class MarioResult {
      * @return number of enemies killed by a koopa shell
      */
     public int getKillsByShell() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.SHELL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKillsByShell();
     }
 
     /**
@@ -153,15 +214,7 @@ public class MarioResult {
      * @return number of a certain type of enemy that has been killed by Mario
      */
     public int getMarioNumKills(int enemyType) {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if ((e.getEventType() == EventType.SHELL_KILL.getValue()
-                    || e.getEventType() == EventType.FIRE_KILL.getValue()
-                    || e.getEventType() == EventType.STOMP_KILL.getValue()) && e.getEventParam() == enemyType) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKills(enemyType);
     }
 
     /**
@@ -170,13 +223,7 @@ public class MarioResult {
      * @return number of times mario got hurt
      */
     public int getMarioNumHurts() {
-        int hurt = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.HURT.getValue()) {
-                hurt += 1;
-            }
-        }
-        return hurt;
+        return this.statistics.getHurts();
     }
 
     /**
@@ -185,13 +232,7 @@ public class MarioResult {
      * @return number of question mark block mario hit
      */
     public int getNumBumpQuestionBlock() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_QUESTION_BLOCK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.statistics.getBumpQuestionBlocks();
     }
 
     /**
@@ -200,13 +241,7 @@ public class MarioResult {
      * @return number of brick block mario hit
      */
     public int getNumBumpBrick() {
-        int bump = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() && e.getEventParam() == MarioForwardModel.OBS_BRICK) {
-                bump += 1;
-            }
-        }
-        return bump;
+        return this.statistics.getBumpBricks();
     }
 
     /**
@@ -215,13 +250,7 @@ public class MarioResult {
      * @return the number of enemies that fell from the game screen
      */
     public int getKillsByFall() {
-        int kills = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.FALL_KILL.getValue()) {
-                kills += 1;
-            }
-        }
-        return kills;
+        return this.statistics.getKillsByFall();
     }
 
     /**
@@ -230,13 +259,7 @@ public class MarioResult {
      * @return the number of jumps performed by mario during the game
      */
     public int getNumJumps() {
-        int jumps = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                jumps += 1;
-            }
-        }
-        return jumps;
+        return this.statistics.getJumps();
     }
 
     /**
@@ -245,19 +268,7 @@ public class MarioResult {
      * @return the maximum x distance traversed mario
      */
     public float getMaxXJump() {
-        float maxXJump = 0;
-        float startX = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startX = e.getMarioX();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (Math.abs(e.getMarioX() - startX) > maxXJump) {
-                    maxXJump = Math.abs(e.getMarioX() - startX);
-                }
-            }
-        }
-        return maxXJump;
+        return this.statistics.getMaxXJump();
     }
 
     /**
@@ -266,19 +277,7 @@ public class MarioResult {
      * @return the maximum amount of frames mario is being in the air
      */
     public int getMaxJumpAirTime() {
-        int maxAirJump = 0;
-        int startTime = -100;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.JUMP.getValue()) {
-                startTime = e.getTime();
-            }
-            if (e.getEventType() == EventType.LAND.getValue()) {
-                if (e.getTime() - startTime > maxAirJump) {
-                    maxAirJump = e.getTime() - startTime;
-                }
-            }
-        }
-        return maxAirJump;
+        return this.statistics.getMaxJumpAirTime();
     }
 
     /**
@@ -305,13 +304,7 @@ public class MarioResult {
      * @return the number of collected mushrooms by mario
      */
     public int getNumCollectedMushrooms() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.MUSHROOM.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.statistics.getMushrooms();
     }
 
     /**
@@ -320,13 +313,7 @@ public class MarioResult {
      * @return the number of collected fire flowers by mario
      */
     public int getNumCollectedFireflower() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == SpriteType.FIRE_FLOWER.getValue()) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.statistics.getFireFlowers();
     }
 
     /**
@@ -335,13 +322,7 @@ public class MarioResult {
      * @return the number of collected coins by mario
      */
     public int getNumCollectedTileCoins() {
-        int collect = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.COLLECT.getValue() && e.getEventParam() == MarioForwardModel.OBS_COIN) {
-                collect += 1;
-            }
-        }
-        return collect;
+        return this.statistics.getTileCoins();
     }
 
     /**
@@ -350,13 +331,6 @@ public class MarioResult {
      * @return the number of destroyed bricks by large or fire mario
      */
     public int getNumDestroyedBricks() {
-        int bricks = 0;
-        for (MarioEvent e : this.gameEvents) {
-            if (e.getEventType() == EventType.BUMP.getValue() &&
-                    e.getEventParam() == MarioForwardModel.OBS_BRICK && e.getMarioState() > 0) {
-                bricks += 1;
-            }
-        }
-        return bricks;
+        return this.statistics.getDestroyedBricks();
     }
 }
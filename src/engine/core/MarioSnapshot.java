@@ -0,0 +1,68 @@
+package engine.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import engine.helper.GameStatus;
+
+/**
+ * State token returned by MarioForwardModel.snapshot. It can't be changed from outside the engine
+ * and restoring it doesn't consume it, so the same token can be restored any number of times.
+ * Tiles are shared with the world until one of them changes, sprites are kept in a MarioSpriteStore.
+ *
+ * @see MarioForwardModel#snapshot()
+ * @see MarioForwardModel#restore(MarioSnapshot)
+ */
+public final class MarioSnapshot {
+    // world
+    GameStatus gameStatus;
+    int pauseTimer, fireballsOnScreen, currentTimer, currentTick;
+    int spawnScanTick, spawnScanMinX, spawnScanMaxX, spawnScanMinY, spawnScanMaxY;
+    float cameraX, cameraY;
+    int coins, lives;
+    final ArrayList<MarioEvent> lastFrameEvents = new ArrayList<>();
+    MarioTileGrid levelTiles;
+    HashMap<Integer, Integer> lastSpawnTicks;
+    final MarioSpriteStore sprites = new MarioSpriteStore(8);
+
+    // forward model stats
+    int fallKill, stompKill, fireKill, shellKill;
+    int mushrooms, flowers, breakBlock;
+
+    MarioSnapshot() {
+    }
+
+    static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Get a 64 bit hash of the simulated state: mario and the other sprites, the tiles changed since the
+     * level was loaded, the world timers and the forward model stats. States reached with different
+     * actions have the same hash when they are the same, so search agents can find duplicate nodes.
+     * The events of the last frame and the graphics are not part of the hash. The hash only depends
+     * on the state, it is the same in every run and for every clone of the forward model.
+     *
+     * @return the hash of the state held by this snapshot
+     */
+    public long getStateHash() {
+        long hash = mix(this.gameStatus.ordinal());
+        hash = mix(hash ^ ((long) this.pauseTimer << 32 | this.fireballsOnScreen & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.currentTimer << 32 | this.currentTick & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.spawnScanTick << 32 | this.spawnScanMinX & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.spawnScanMaxX << 32 | this.spawnScanMinY & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.spawnScanMaxY << 32 | Float.floatToIntBits(this.cameraX) & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) Float.floatToIntBits(this.cameraY) << 32 | this.coins & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.lives << 32 | this.fallKill & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.stompKill << 32 | this.fireKill & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.shellKill << 32 | this.mushrooms & 0xFFFFFFFFL));
+        hash = mix(hash ^ ((long) this.flowers << 32 | this.breakBlock & 0xFFFFFFFFL));
+        hash = mix(hash ^ this.levelTiles.getHash());
+        if (this.lastSpawnTicks != null) {
+            hash = mix(hash ^ this.lastSpawnTicks.hashCode());
+        }
+        return this.sprites.hash(hash);
+    }
+}
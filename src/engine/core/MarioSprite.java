@@ -9,6 +9,13 @@ public abstract class MarioSprite {
     //    public static SpriteContext spriteContext;
     public SpriteType type = SpriteType.UNDEF;
 
+    // the spawn code of the level tile that spawned this sprite, 0 if not spawned from the level
+    public int spawnCode;
+    /**
+     * @deprecated the engine no longer sets this field, getInitialCode gives the code in the "x_y_type" form
+     * and spawnCode holds the same code as a number
+     */
+    @Deprecated
     public String initialCode;
     public float x, y, xa, ya;
     public int width, height, facing;
@@ -16,7 +23,7 @@ public abstract class MarioSprite {
     public MarioWorld world;
 
     public MarioSprite(float x, float y, SpriteType type) {
-        this.initialCode = "";
+        this.spawnCode = 0;
         this.x = x;
         this.y = y;
         this.xa = 0;
@@ -33,6 +40,35 @@ public abstract class MarioSprite {
         return null;
     }
 
+    /**
+     * Get the code of the level tile that spawned this sprite in the old "x_y_type" form
+     *
+     * @return the sprite code or an empty string if the sprite wasn't spawned from the level
+     */
+    public String getInitialCode() {
+        return MarioLevel.getSpriteCode(this.spawnCode);
+    }
+
+    /**
+     * Write the simulation state that is specific to this sprite type into the store slots
+     *
+     * @param store the store to write to
+     * @param index the index of this sprite in the store
+     */
+    public void saveState(MarioSpriteStore store, int index) {
+
+    }
+
+    /**
+     * Read the simulation state that is specific to this sprite type from the store slots
+     *
+     * @param store the store to read from
+     * @param index the index of this sprite in the store
+     */
+    public void loadState(MarioSpriteStore store, int index) {
+
+    }
+
     public void added() {
 
     }
@@ -0,0 +1,325 @@
+package engine.core;
+
+import java.util.Arrays;
+
+import engine.helper.SpriteType;
+import engine.sprites.*;
+
+/**
+ * Data oriented copy of the state of all the sprites in a world. Every sprite takes one index
+ * in a set of parallel primitive arrays, so copying the store is only a few System.arraycopy calls.
+ * Only the state that affects the simulation is stored, graphics state is not.
+ *
+ * @see MarioWorld#saveSprites(MarioSpriteStore)
+ * @see MarioWorld#loadSprites(MarioSpriteStore)
+ */
+public class MarioSpriteStore {
+    /**
+     * number of int values each sprite can use for its type specific state
+     */
+    public static final int INT_SLOTS = 10;
+    /**
+     * number of float values each sprite can use for its type specific state
+     */
+    public static final int FLOAT_SLOTS = 3;
+
+    private static final SpriteType[] types = SpriteType.values();
+
+    private int size;
+    // index of mario when he is no longer part of the world sprites, -1 otherwise
+    int detachedMario = -1;
+    private int[] type;
+    private float[] x, y, xa, ya;
+    private int[] width, height, facing, spawnCode;
+    private boolean[] alive;
+    private int[] intState;
+    private float[] floatState;
+
+    /**
+     * Create an empty sprite store
+     *
+     * @param capacity the initial number of sprites that can be stored without growing
+     */
+    public MarioSpriteStore(int capacity) {
+        this.allocate(Math.max(1, capacity));
+    }
+
+    private void allocate(int capacity) {
+        this.type = new int[capacity];
+        this.x = new float[capacity];
+        this.y = new float[capacity];
+        this.xa = new float[capacity];
+        this.ya = new float[capacity];
+        this.width = new int[capacity];
+        this.height = new int[capacity];
+        this.facing = new int[capacity];
+        this.spawnCode = new int[capacity];
+        this.alive = new boolean[capacity];
+        this.intState = new int[capacity * INT_SLOTS];
+        this.floatState = new float[capacity * FLOAT_SLOTS];
+    }
+
+    /**
+     * Create a copy of the store
+     *
+     * @return a new store with the same sprites
+     */
+    public MarioSpriteStore copy() {
+        MarioSpriteStore store = new MarioSpriteStore(this.size);
+        store.copyFrom(this);
+        return store;
+    }
+
+    /**
+     * Overwrite the content of this store with the content of another one, reusing the arrays when they are big enough
+     *
+     * @param other the store to copy from
+     */
+    public void copyFrom(MarioSpriteStore other) {
+        if (this.type.length < other.size) {
+            this.allocate(other.size);
+        }
+        int n = other.size;
+        System.arraycopy(other.type, 0, this.type, 0, n);
+        System.arraycopy(other.x, 0, this.x, 0, n);
+        System.arraycopy(other.y, 0, this.y, 0, n);
+        System.arraycopy(other.xa, 0, this.xa, 0, n);
+        System.arraycopy(other.ya, 0, this.ya, 0, n);
+        System.arraycopy(other.width, 0, this.width, 0, n);
+        System.arraycopy(other.height, 0, this.height, 0, n);
+        System.arraycopy(other.facing, 0, this.facing, 0, n);
+        System.arraycopy(other.spawnCode, 0, this.spawnCode, 0, n);
+        System.arraycopy(other.alive, 0, this.alive, 0, n);
+        System.arraycopy(other.intState, 0, this.intState, 0, n * INT_SLOTS);
+        System.arraycopy(other.floatState, 0, this.floatState, 0, n * FLOAT_SLOTS);
+        this.size = n;
+        this.detachedMario = other.detachedMario;
+    }
+
+    /**
+     * Get the number of stored sprites
+     *
+     * @return the number of stored sprites
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public SpriteType getType(int index) {
+        return types[this.type[index]];
+    }
+
+    public float getX(int index) {
+        return this.x[index];
+    }
+
+    public float getY(int index) {
+        return this.y[index];
+    }
+
+    public int getInt(int index, int slot) {
+        return this.intState[index * INT_SLOTS + slot];
+    }
+
+    public void setInt(int index, int slot, int value) {
+        this.intState[index * INT_SLOTS + slot] = value;
+    }
+
+    public float getFloat(int index, int slot) {
+        return this.floatState[index * FLOAT_SLOTS + slot];
+    }
+
+    public void setFloat(int index, int slot, float value) {
+        this.floatState[index * FLOAT_SLOTS + slot] = value;
+    }
+
+    void clear() {
+        this.size = 0;
+        this.detachedMario = -1;
+    }
+
+    void add(MarioSprite sprite) {
+        this.resize(this.size + 1);
+        this.set(this.size - 1, sprite);
+    }
+
+    /**
+     * Append a copy of a sprite stored in another store
+     *
+     * @param other the store holding the sprite
+     * @param j     the index of the sprite in the other store
+     */
+    void add(MarioSpriteStore other, int j) {
+        this.resize(this.size + 1);
+        this.set(this.size - 1, other, j);
+    }
+
+    /**
+     * Change the number of stored sprites, the arrays grow when needed and the sprites that are
+     * kept don't change. Sprites added this way hold old values until they are overwritten.
+     *
+     * @param size the new number of stored sprites
+     */
+    void resize(int size) {
+        if (size > this.type.length) {
+            MarioSpriteStore old = this.copy();
+            this.allocate(Math.max(size, this.type.length * 2));
+            this.copyFrom(old);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Overwrite a stored sprite with a sprite stored in another store
+     *
+     * @param i     the index of the stored sprite
+     * @param other the store to copy from
+     * @param j     the index of the sprite in the other store
+     */
+    void set(int i, MarioSpriteStore other, int j) {
+        this.type[i] = other.type[j];
+        this.x[i] = other.x[j];
+        this.y[i] = other.y[j];
+        this.xa[i] = other.xa[j];
+        this.ya[i] = other.ya[j];
+        this.width[i] = other.width[j];
+        this.height[i] = other.height[j];
+        this.facing[i] = other.facing[j];
+        this.spawnCode[i] = other.spawnCode[j];
+        this.alive[i] = other.alive[j];
+        System.arraycopy(other.intState, j * INT_SLOTS, this.intState, i * INT_SLOTS, INT_SLOTS);
+        System.arraycopy(other.floatState, j * FLOAT_SLOTS, this.floatState, i * FLOAT_SLOTS, FLOAT_SLOTS);
+    }
+
+    /**
+     * Check if a stored sprite has exactly the same state as a sprite stored in another store
+     *
+     * @param i     the index of the stored sprite
+     * @param other the store to compare with
+     * @param j     the index of the sprite in the other store
+     * @return true if every stored value is the same
+     */
+    boolean matches(int i, MarioSpriteStore other, int j) {
+        if (this.type[i] != other.type[j] || this.alive[i] != other.alive[j]
+                || Float.floatToIntBits(this.x[i]) != Float.floatToIntBits(other.x[j])
+                || Float.floatToIntBits(this.y[i]) != Float.floatToIntBits(other.y[j])
+                || Float.floatToIntBits(this.xa[i]) != Float.floatToIntBits(other.xa[j])
+                || Float.floatToIntBits(this.ya[i]) != Float.floatToIntBits(other.ya[j])
+                || this.width[i] != other.width[j] || this.height[i] != other.height[j]
+                || this.facing[i] != other.facing[j] || this.spawnCode[i] != other.spawnCode[j]) {
+            return false;
+        }
+        for (int slot = 0; slot < INT_SLOTS; slot++) {
+            if (this.intState[i * INT_SLOTS + slot] != other.intState[j * INT_SLOTS + slot]) {
+                return false;
+            }
+        }
+        for (int slot = 0; slot < FLOAT_SLOTS; slot++) {
+            if (Float.floatToIntBits(this.floatState[i * FLOAT_SLOTS + slot])
+                    != Float.floatToIntBits(other.floatState[j * FLOAT_SLOTS + slot])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Overwrite a stored sprite with the current state of a sprite object
+     *
+     * @param i      the index of the stored sprite
+     * @param sprite the sprite to copy
+     */
+    void set(int i, MarioSprite sprite) {
+        this.type[i] = sprite.type.ordinal();
+        this.x[i] = sprite.x;
+        this.y[i] = sprite.y;
+        this.xa[i] = sprite.xa;
+        this.ya[i] = sprite.ya;
+        this.width[i] = sprite.width;
+        this.height[i] = sprite.height;
+        this.facing[i] = sprite.facing;
+        this.spawnCode[i] = sprite.spawnCode;
+        this.alive[i] = sprite.alive;
+        // slots the sprite doesn't use are cleared so equal sprites always have the same hash
+        Arrays.fill(this.intState, i * INT_SLOTS, (i + 1) * INT_SLOTS, 0);
+        Arrays.fill(this.floatState, i * FLOAT_SLOTS, (i + 1) * FLOAT_SLOTS, 0);
+        sprite.saveState(this, i);
+    }
+
+    /**
+     * Hash the state of all the sprites, in their order in the store
+     *
+     * @param hash the hash to combine the sprites with
+     * @return the combined hash
+     */
+    long hash(long hash) {
+        hash = MarioSnapshot.mix(hash ^ this.size);
+        hash = MarioSnapshot.mix(hash ^ this.detachedMario);
+        for (int i = 0; i < this.size; i++) {
+            hash = MarioSnapshot.mix(hash ^ ((long) this.type[i] << 32 | (this.alive[i] ? 1 : 0)));
+            hash = MarioSnapshot.mix(hash ^ ((long) Float.floatToIntBits(this.x[i]) << 32 | Float.floatToIntBits(this.y[i]) & 0xFFFFFFFFL));
+            hash = MarioSnapshot.mix(hash ^ ((long) Float.floatToIntBits(this.xa[i]) << 32 | Float.floatToIntBits(this.ya[i]) & 0xFFFFFFFFL));
+            hash = MarioSnapshot.mix(hash ^ ((long) this.width[i] << 32 | this.height[i] & 0xFFFFFFFFL));
+            hash = MarioSnapshot.mix(hash ^ ((long) this.facing[i] << 32 | this.spawnCode[i] & 0xFFFFFFFFL));
+            // the buttons of mario are replaced before the next update reads them, they are not part of the state
+            int skipped = this.type[i] == SpriteType.MARIO.ordinal() ? Mario.BUTTONS_SLOT : -1;
+            for (int slot = 0; slot < INT_SLOTS; slot++) {
+                if (slot != skipped) {
+                    hash = MarioSnapshot.mix(hash ^ this.intState[i * INT_SLOTS + slot]);
+                }
+            }
+            for (int slot = i * FLOAT_SLOTS; slot < (i + 1) * FLOAT_SLOTS; slot++) {
+                hash = MarioSnapshot.mix(hash ^ Float.floatToIntBits(this.floatState[slot]));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Write a stored sprite into a sprite object, a new object is created if the given one has a different type
+     *
+     * @param index  the index of the stored sprite
+     * @param sprite a sprite object that can be reused or null
+     * @return the sprite object that holds the stored state
+     */
+    MarioSprite load(int index, MarioSprite sprite) {
+        SpriteType spriteType = types[this.type[index]];
+        if (sprite == null || sprite.type != spriteType) {
+            sprite = createSprite(spriteType);
+        }
+        sprite.x = this.x[index];
+        sprite.y = this.y[index];
+        sprite.xa = this.xa[index];
+        sprite.ya = this.ya[index];
+        sprite.width = this.width[index];
+        sprite.height = this.height[index];
+        sprite.facing = this.facing[index];
+        sprite.spawnCode = this.spawnCode[index];
+        sprite.alive = this.alive[index];
+        sprite.loadState(this, index);
+        return sprite;
+    }
+
+    private static MarioSprite createSprite(SpriteType type) {
+        switch (type) {
+            case MARIO:
+                return new Mario(false, 0, 0);
+            case FIREBALL:
+                return new Fireball(false, 0, 0, 1);
+            case BULLET_BILL:
+                return new BulletBill(false, 0, 0, 1);
+            case ENEMY_FLOWER:
+                return new FlowerEnemy(false, 0, 0);
+            case MUSHROOM:
+                return new Mushroom(false, 0, 0);
+            case LIFE_MUSHROOM:
+                return new LifeMushroom(false, 0, 0);
+            case FIRE_FLOWER:
+                return new FireFlower(false, 0, 0);
+            case SHELL:
+                return new Shell(false, 0, 0, 0, 0);
+            default:
+                return new Enemy(false, 0, 0, 1, type);
+        }
+    }
+}
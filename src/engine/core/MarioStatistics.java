@@ -0,0 +1,140 @@
+package engine.core;
+
+import java.util.HashMap;
+import java.util.List;
+
+import engine.helper.EventType;
+import engine.helper.SpriteType;
+
+/**
+ * Totals of the game events that MarioResult reports, updated once per event while the game runs
+ * so the result getters don't have to go through the event history.
+ */
+class MarioStatistics {
+    private int stompKills, fireKills, shellKills, fallKills;
+    private final HashMap<Integer, Integer> killsByType = new HashMap<>();
+    private int hurts;
+    private int bumpQuestionBlocks, bumpBricks, destroyedBricks;
+    private int jumps;
+    private float maxXJump;
+    private int maxJumpAirTime;
+    private float jumpStartX = -100;
+    private int jumpStartTime = -100;
+    private int mushrooms, fireFlowers, tileCoins;
+
+    void addAll(List<MarioEvent> events) {
+        for (MarioEvent e : events) {
+            this.add(e);
+        }
+    }
+
+    void add(MarioEvent e) {
+        int type = e.getEventType();
+        int param = e.getEventParam();
+        if (type == EventType.STOMP_KILL.getValue()) {
+            this.stompKills += 1;
+            this.killsByType.merge(param, 1, Integer::sum);
+        } else if (type == EventType.FIRE_KILL.getValue()) {
+            this.fireKills += 1;
+            this.killsByType.merge(param, 1, Integer::sum);
+        } else if (type == EventType.SHELL_KILL.getValue()) {
+            this.shellKills += 1;
+            this.killsByType.merge(param, 1, Integer::sum);
+        } else if (type == EventType.FALL_KILL.getValue()) {
+            this.fallKills += 1;
+        } else if (type == EventType.HURT.getValue()) {
+            this.hurts += 1;
+        } else if (type == EventType.BUMP.getValue()) {
+            if (param == MarioForwardModel.OBS_QUESTION_BLOCK) {
+                this.bumpQuestionBlocks += 1;
+            }
+            if (param == MarioForwardModel.OBS_BRICK) {
+                this.bumpBricks += 1;
+                if (e.getMarioState() > 0) {
+                    this.destroyedBricks += 1;
+                }
+            }
+        } else if (type == EventType.JUMP.getValue()) {
+            this.jumps += 1;
+            this.jumpStartX = e.getMarioX();
+            this.jumpStartTime = e.getTime();
+        } else if (type == EventType.LAND.getValue()) {
+            this.maxXJump = Math.max(this.maxXJump, Math.abs(e.getMarioX() - this.jumpStartX));
+            this.maxJumpAirTime = Math.max(this.maxJumpAirTime, e.getTime() - this.jumpStartTime);
+        } else if (type == EventType.COLLECT.getValue()) {
+            if (param == SpriteType.MUSHROOM.getValue()) {
+                this.mushrooms += 1;
+            }
+            if (param == SpriteType.FIRE_FLOWER.getValue()) {
+                this.fireFlowers += 1;
+            }
+            if (param == MarioForwardModel.OBS_COIN) {
+                this.tileCoins += 1;
+            }
+        }
+    }
+
+    int getKillsTotal() {
+        return this.stompKills + this.fireKills + this.shellKills + this.fallKills;
+    }
+
+    int getKillsByFire() {
+        return this.fireKills;
+    }
+
+    int getKillsByStomp() {
+        return this.stompKills;
+    }
+
+    int getKillsByShell() {
+        return this.shellKills;
+    }
+
+    int getKillsByFall() {
+        return this.fallKills;
+    }
+
+    int getKills(int enemyType) {
+        return this.killsByType.getOrDefault(enemyType, 0);
+    }
+
+    int getHurts() {
+        return this.hurts;
+    }
+
+    int getBumpQuestionBlocks() {
+        return this.bumpQuestionBlocks;
+    }
+
+    int getBumpBricks() {
+        return this.bumpBricks;
+    }
+
+    int getDestroyedBricks() {
+        return this.destroyedBricks;
+    }
+
+    int getJumps() {
+        return this.jumps;
+    }
+
+    float getMaxXJump() {
+        return this.maxXJump;
+    }
+
+    int getMaxJumpAirTime() {
+        return this.maxJumpAirTime;
+    }
+
+    int getMushrooms() {
+        return this.mushrooms;
+    }
+
+    int getFireFlowers() {
+        return this.fireFlowers;
+    }
+
+    int getTileCoins() {
+        return this.tileCoins;
+    }
+}
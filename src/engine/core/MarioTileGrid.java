@@ -0,0 +1,115 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * Copy-on-write grid of int values used by MarioLevel to store its tiles.
+ * Columns are grouped into chunks, a copy shares all the chunks with its source and
+ * only duplicates a chunk the first time one of them writes into it.
+ */
+class MarioTileGrid {
+    private static final int CHUNK_SHIFT = 4;
+    private static final int CHUNK_WIDTH = 1 << CHUNK_SHIFT;
+
+    private final int width;
+    private final int height;
+    private int[][] chunks;
+    // null while the chunk table is shared with another grid
+    private boolean[] owned;
+    // xor of the keys of the changes made since trackChanges, see getHash
+    private boolean tracked;
+    private long hash;
+
+    MarioTileGrid(int width, int height, int value) {
+        this.width = width;
+        this.height = height;
+        this.chunks = new int[(width + CHUNK_WIDTH - 1) >> CHUNK_SHIFT][CHUNK_WIDTH * height];
+        this.owned = new boolean[this.chunks.length];
+        Arrays.fill(this.owned, true);
+        if (value != 0) {
+            for (int[] chunk : this.chunks) {
+                Arrays.fill(chunk, value);
+            }
+        }
+    }
+
+    private MarioTileGrid(MarioTileGrid grid) {
+        this.width = grid.width;
+        this.height = grid.height;
+        this.chunks = grid.chunks;
+        this.owned = null;
+        this.tracked = grid.tracked;
+        this.hash = grid.hash;
+    }
+
+    /**
+     * Create a grid with the same values, no values are copied until one of the grids is written
+     *
+     * @return a grid that shares its chunks with this one
+     */
+    MarioTileGrid copy() {
+        this.owned = null;
+        return new MarioTileGrid(this);
+    }
+
+    /**
+     * Create a grid with the same values without writing to this grid, so several threads can share the
+     * same source. This grid must not own any chunk, which is the case for every grid returned by copy.
+     *
+     * @return a grid that shares its chunks with this one
+     */
+    MarioTileGrid share() {
+        if (this.owned != null) {
+            throw new IllegalStateException("Only a grid that owns no chunk can be shared");
+        }
+        return new MarioTileGrid(this);
+    }
+
+    /**
+     * Start updating the hash on every change, the current values hash to 0
+     */
+    void trackChanges() {
+        this.tracked = true;
+        this.hash = 0;
+    }
+
+    /**
+     * Get a hash of the values changed since trackChanges. Every change replaces the key of the old
+     * value of the cell by the key of the new one, so grids with the same values have the same hash
+     * whatever the order of the changes that led there.
+     *
+     * @return the hash, 0 when the grid has the values it had when trackChanges was called
+     */
+    long getHash() {
+        return this.hash;
+    }
+
+    private long getKey(int x, int y, int value) {
+        return MarioSnapshot.mix(((long) (x * this.height + y) << 32) | (value & 0xFFFFFFFFL));
+    }
+
+    int get(int x, int y) {
+        return this.chunks[x >> CHUNK_SHIFT][(x & (CHUNK_WIDTH - 1)) * this.height + y];
+    }
+
+    void set(int x, int y, int value) {
+        int chunk = x >> CHUNK_SHIFT;
+        int index = (x & (CHUNK_WIDTH - 1)) * this.height + y;
+        int old = this.chunks[chunk][index];
+        if (old == value) {
+            return;
+        }
+        if (this.tracked) {
+            this.hash ^= this.getKey(x, y, old) ^ this.getKey(x, y, value);
+        }
+        if (this.owned == null) {
+            this.chunks = this.chunks.clone();
+            this.owned = new boolean[this.chunks.length];
+        }
+        if (!this.owned[chunk]) {
+            this.chunks[chunk] = this.chunks[chunk].clone();
+            this.owned[chunk] = true;
+        }
+        this.chunks[chunk][index] = value;
+    }
+}
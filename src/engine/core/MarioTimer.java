@@ -8,6 +8,8 @@ package engine.core;
 public class MarioTimer {
     private long startTimer;
     private long remainingTime;
+    // number of getRemainingTime calls so far, -1 for timers that use the wall clock
+    private long iterations = -1;
 
     /**
      * Start a timer
@@ -19,12 +21,31 @@ public class MarioTimer {
         this.remainingTime = remainingTime;
     }
 
+    /**
+     * Start a timer that counts calls instead of milliseconds. Every call to getRemainingTime uses one
+     * unit of the budget, so an agent that checks the timer once per search node gets a node budget
+     * that doesn't depend on the speed or the load of the machine.
+     *
+     * @param iterations the number of getRemainingTime calls that return a positive value
+     * @return a timer independent from the wall clock
+     */
+    public static MarioTimer createIterationTimer(long iterations) {
+        MarioTimer timer = new MarioTimer(iterations);
+        timer.iterations = 0;
+        return timer;
+    }
+
     /**
      * Get the remaining time in that timer since construction
      *
-     * @return number of milliseconds remaining in that timer.
+     * @return number of milliseconds remaining in that timer, or number of remaining calls for iteration timers.
      */
     public long getRemainingTime() {
+        if (this.iterations >= 0) {
+            long remaining = Math.max(0, this.remainingTime - this.iterations);
+            this.iterations += 1;
+            return remaining;
+        }
         return Math.max(0, this.remainingTime - (System.currentTimeMillis() - this.startTimer));
     }
 }
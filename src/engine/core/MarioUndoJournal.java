@@ -0,0 +1,133 @@
+package engine.core;
+
+import java.util.Arrays;
+
+/**
+ * Ring buffer holding what changed during each of the last advances of a forward model. An entry keeps
+ * the world values without tiles and sprites, the tiles written during that advance are logged with their
+ * old value and only the sprites that changed are stored, in the sprite store of the entry snapshot.
+ * The changed sprites are found by comparing the world after the advance with a store of the sprites
+ * before it, so an entry grows with what changed and not with the level size or the number of sprites.
+ */
+class MarioUndoJournal {
+    private final MarioSnapshot[] states;
+    // x, y and old value of every tile written during the advance of the same entry
+    private final int[][] tileWrites;
+    private final int[] tileWriteCounts;
+    // index of every sprite stored in the entry snapshot, with the sprite count and detached mario before the advance
+    private final int[][] spriteIndices;
+    private final int[] spriteCounts;
+    private final int[] detachedMarios;
+    // sprites of the world after the last recorded advance and the buffer the next advance is saved into
+    private MarioSpriteStore current = new MarioSpriteStore(8);
+    private MarioSpriteStore next = new MarioSpriteStore(8);
+    private int last = -1;
+    private int size = 0;
+
+    MarioUndoJournal(int capacity) {
+        this.states = new MarioSnapshot[capacity];
+        this.tileWrites = new int[capacity][];
+        this.tileWriteCounts = new int[capacity];
+        this.spriteIndices = new int[capacity][];
+        this.spriteCounts = new int[capacity];
+        this.detachedMarios = new int[capacity];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Start a new entry, the oldest one is dropped when the journal is full
+     *
+     * @param world the world that is about to be updated
+     * @return the snapshot of the new entry that needs to be filled with the current world values
+     */
+    MarioSnapshot push(MarioWorld world) {
+        if (this.size == 0) {
+            world.saveSprites(this.current);
+        }
+        this.last = (this.last + 1) % this.states.length;
+        if (this.states[this.last] == null) {
+            this.states[this.last] = new MarioSnapshot();
+            this.tileWrites[this.last] = new int[3 * 4];
+            this.spriteIndices[this.last] = new int[4];
+        }
+        this.tileWriteCounts[this.last] = 0;
+        this.states[this.last].sprites.clear();
+        this.size = Math.min(this.size + 1, this.states.length);
+        return this.states[this.last];
+    }
+
+    void recordTile(int xTile, int yTile, int oldIndex) {
+        if (this.size == 0) {
+            return;
+        }
+        int[] writes = this.tileWrites[this.last];
+        int count = this.tileWriteCounts[this.last];
+        if (count + 3 > writes.length) {
+            writes = Arrays.copyOf(writes, writes.length * 2);
+            this.tileWrites[this.last] = writes;
+        }
+        writes[count] = xTile;
+        writes[count + 1] = yTile;
+        writes[count + 2] = oldIndex;
+        this.tileWriteCounts[this.last] = count + 3;
+    }
+
+    /**
+     * Finish the newest entry by storing the old state of every sprite the update changed or removed
+     *
+     * @param world the world after its update
+     */
+    void recordSprites(MarioWorld world) {
+        world.saveSprites(this.next);
+        MarioSpriteStore changed = this.states[this.last].sprites;
+        int[] indices = this.spriteIndices[this.last];
+        int count = this.current.size();
+        for (int i = 0; i < count; i++) {
+            if (i >= this.next.size() || !this.current.matches(i, this.next, i)) {
+                if (changed.size() == indices.length) {
+                    indices = Arrays.copyOf(indices, indices.length * 2);
+                    this.spriteIndices[this.last] = indices;
+                }
+                indices[changed.size()] = i;
+                changed.add(this.current, i);
+            }
+        }
+        this.spriteCounts[this.last] = count;
+        this.detachedMarios[this.last] = this.current.detachedMario;
+        MarioSpriteStore old = this.current;
+        this.current = this.next;
+        this.next = old;
+    }
+
+    /**
+     * Remove the newest entry after writing its old tiles and sprites back into the world
+     *
+     * @param world the world the entry was recorded from
+     * @return the snapshot of the removed entry holding the world values, it stays valid until the next push
+     */
+    MarioSnapshot pop(MarioWorld world) {
+        int[] writes = this.tileWrites[this.last];
+        for (int i = this.tileWriteCounts[this.last] - 3; i >= 0; i -= 3) {
+            world.level.revertBlock(writes[i], writes[i + 1], writes[i + 2]);
+        }
+        MarioSnapshot state = this.states[this.last];
+        MarioSpriteStore changed = state.sprites;
+        int[] indices = this.spriteIndices[this.last];
+        this.current.resize(this.spriteCounts[this.last]);
+        for (int i = 0; i < changed.size(); i++) {
+            this.current.set(indices[i], changed, i);
+        }
+        this.current.detachedMario = this.detachedMarios[this.last];
+        world.loadSprites(this.current);
+        this.last = (this.last - 1 + this.states.length) % this.states.length;
+        this.size -= 1;
+        return state;
+    }
+}
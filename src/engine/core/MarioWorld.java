@@ -3,6 +3,7 @@ package engine.core;
 import java.awt.Graphics;
 import java.awt.GraphicsConfiguration;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import engine.effects.*;
 import engine.graphics.MarioBackground;
@@ -35,6 +36,24 @@ public class MarioWorld {
     private ArrayList<MarioSprite> removedSprites;
 
     private ArrayList<MarioEffect> effects;
+    // open addressing set of the spawn codes of the current sprites, rebuilt every update
+    private int[] spawnedCodes;
+    // broad phase for the shell and fireball checks, created the first time one of them is needed
+    private MarioCollisionGrid collisionGrid;
+    // observation grids reused between calls, created on the first observation
+    private MarioObservationCache observations;
+    // changes whenever the sprites may have changed so cached enemy observations are rebuilt
+    private int spriteVersion;
+
+    private static final String[] PHASES = {MarioMetrics.CULL, MarioMetrics.SPAWN_SCAN, MarioMetrics.SPRITE_UPDATE,
+            MarioMetrics.COLLIDE_CHECK, MarioMetrics.SHELL_CHECK, MarioMetrics.FIREBALL_CHECK, MarioMetrics.MERGE};
+    private static final int CULL = 0, SPAWN_SCAN = 1, SPRITE_UPDATE = 2, COLLIDE_CHECK = 3,
+            SHELL_CHECK = 4, FIREBALL_CHECK = 5, MERGE = 6;
+    // profiling registry, null when profiling is disabled
+    private MarioMetrics metrics;
+    // false for clones, they share the registry to count clones but don't time their updates
+    private boolean recordPhases;
+    private MarioHistogram[] phaseTimes;
 
     private MarioBackground[] backgrounds = new MarioBackground[2];
 
@@ -87,7 +106,8 @@ public class MarioWorld {
 
     public void initializeLevel(String level, int timer) {
         this.currentTimer = timer;
-        this.level = new MarioLevel(level, this.visuals);
+        this.level = MarioLevel.create(level, this.visuals);
+        this.observations = null;
 
         this.mario = new Mario(this.visuals, this.level.marioTileX * 16, this.level.marioTileY * 16);
         this.mario.alive = true;
@@ -95,6 +115,48 @@ public class MarioWorld {
         this.sprites.add(this.mario);
     }
 
+    private MarioObservationCache getObservationCache() {
+        if (this.observations == null) {
+            this.observations = new MarioObservationCache(this);
+        }
+        return this.observations;
+    }
+
+    int getSpriteVersion() {
+        return this.spriteVersion;
+    }
+
+    /**
+     * Time every phase of update and count what each phase did, clones of the world share the
+     * registry but don't record their updates
+     *
+     * @param metrics the registry receiving the measurements, null to disable profiling
+     */
+    public void setMetrics(MarioMetrics metrics) {
+        this.metrics = metrics;
+        this.recordPhases = metrics != null;
+        if (metrics != null) {
+            this.phaseTimes = new MarioHistogram[PHASES.length];
+            for (int i = 0; i < PHASES.length; i++) {
+                this.phaseTimes[i] = metrics.getHistogram(PHASES[i]);
+            }
+        }
+    }
+
+    MarioMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    private long endPhase(int phase, long start, int count) {
+        if (!this.recordPhases) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        this.phaseTimes[phase].record(now - start);
+        this.metrics.increment(PHASES[phase], count);
+        return now;
+    }
+
     public ArrayList<MarioSprite> getEnemies() {
         ArrayList<MarioSprite> enemies = new ArrayList<>();
         for (MarioSprite sprite : sprites) {
@@ -116,6 +178,7 @@ public class MarioWorld {
         world.currentTimer = this.currentTimer;
         world.currentTick = this.currentTick;
         world.level = this.level.clone();
+        world.metrics = this.metrics;
         for (MarioSprite sprite : this.sprites) {
             MarioSprite cloneSprite = sprite.clone();
             cloneSprite.world = world;
@@ -133,6 +196,103 @@ public class MarioWorld {
         return world;
     }
 
+    /**
+     * Save everything but the level tiles into a snapshot, MarioLevel saves the tiles separately
+     */
+    void saveState(MarioSnapshot snapshot) {
+        this.saveValues(snapshot);
+        this.saveSprites(snapshot.sprites);
+    }
+
+    void loadState(MarioSnapshot snapshot) {
+        this.loadValues(snapshot);
+        this.loadSprites(snapshot.sprites);
+    }
+
+    /**
+     * Save the world without its sprites and tiles, the undo journal records the changed sprites by itself
+     */
+    void saveValues(MarioSnapshot snapshot) {
+        snapshot.gameStatus = this.gameStatus;
+        snapshot.pauseTimer = this.pauseTimer;
+        snapshot.fireballsOnScreen = this.fireballsOnScreen;
+        snapshot.currentTimer = this.currentTimer;
+        snapshot.currentTick = this.currentTick;
+        this.level.saveSpawnScan(snapshot);
+        snapshot.cameraX = this.cameraX;
+        snapshot.cameraY = this.cameraY;
+        snapshot.coins = this.coins;
+        snapshot.lives = this.lives;
+        snapshot.lastFrameEvents.clear();
+        snapshot.lastFrameEvents.addAll(this.lastFrameEvents);
+    }
+
+    void loadValues(MarioSnapshot snapshot) {
+        this.gameStatus = snapshot.gameStatus;
+        this.pauseTimer = snapshot.pauseTimer;
+        this.fireballsOnScreen = snapshot.fireballsOnScreen;
+        this.currentTimer = snapshot.currentTimer;
+        this.currentTick = snapshot.currentTick;
+        this.level.loadSpawnScan(snapshot);
+        this.cameraX = snapshot.cameraX;
+        this.cameraY = snapshot.cameraY;
+        this.coins = snapshot.coins;
+        this.lives = snapshot.lives;
+        this.lastFrameEvents.clear();
+        this.lastFrameEvents.addAll(snapshot.lastFrameEvents);
+        this.effects.clear();
+    }
+
+    /**
+     * Write the state of all the sprites into a data oriented store, it should only be called between updates
+     *
+     * @param store the store that receives the sprites, its previous content is discarded
+     */
+    public void saveSprites(MarioSpriteStore store) {
+        store.clear();
+        boolean marioFound = false;
+        for (MarioSprite sprite : this.sprites) {
+            store.add(sprite);
+            marioFound |= sprite == this.mario;
+        }
+        if (!marioFound) {
+            // mario has been removed from the sprite list but the world still reports his state
+            store.detachedMario = store.size();
+            store.add(this.mario);
+        }
+    }
+
+    /**
+     * Replace the sprites of the world with the ones in the store. Current sprite objects are reused
+     * when they have the same type as the stored sprite at the same index.
+     *
+     * @param store the store holding the sprites
+     */
+    public void loadSprites(MarioSpriteStore store) {
+        this.spriteVersion += 1;
+        int count = store.detachedMario >= 0 ? store.detachedMario : store.size();
+        for (int i = 0; i < count; i++) {
+            MarioSprite current = i < this.sprites.size() ? this.sprites.get(i) : null;
+            MarioSprite sprite = store.load(i, current);
+            sprite.world = this;
+            if (sprite.type == SpriteType.MARIO) {
+                this.mario = (Mario) sprite;
+            }
+            if (current == null) {
+                this.sprites.add(sprite);
+            } else if (current != sprite) {
+                this.sprites.set(i, sprite);
+            }
+        }
+        if (store.detachedMario >= 0) {
+            this.mario = (Mario) store.load(store.detachedMario, this.mario);
+            this.mario.world = this;
+        }
+        while (this.sprites.size() > count) {
+            this.sprites.remove(this.sprites.size() - 1);
+        }
+    }
+
     public void addEvent(EventType eventType, int eventParam) {
         int marioState = 0;
         if (this.mario.isLarge) {
@@ -149,6 +309,7 @@ public class MarioWorld {
     }
 
     public void addSprite(MarioSprite sprite) {
+        this.spriteVersion += 1;
         this.addedSprites.add(sprite);
         sprite.alive = true;
         sprite.world = this;
@@ -157,6 +318,7 @@ public class MarioWorld {
     }
 
     public void removeSprite(MarioSprite sprite) {
+        this.spriteVersion += 1;
         this.removedSprites.add(sprite);
         sprite.alive = false;
         sprite.removed();
@@ -187,38 +349,47 @@ public class MarioWorld {
         this.mario.alive = false;
     }
 
-    public int[][] getSceneObservation(float centerX, float centerY, int detail) {
-        int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
-        int centerXInMap = (int) centerX / 16;
-        int centerYInMap = (int) centerY / 16;
-
-        for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
-            for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
-                int currentX = x;
-                if (currentX < 0) {
-                    currentX = 0;
-                }
-                if (currentX > level.tileWidth - 1) {
-                    currentX = level.tileWidth - 1;
-                }
-                int currentY = y;
-                if (currentY < 0) {
-                    currentY = 0;
-                }
-                if (currentY > level.tileHeight - 1) {
-                    currentY = level.tileHeight - 1;
+    /**
+     * Count the enemies and write their type, x and y position into a buffer without allocating
+     *
+     * @param buffer receives 3 floats per enemy, enemies that don't fit are only counted
+     * @return the number of enemies in the world
+     */
+    public int getEnemiesFloatPos(float[] buffer) {
+        int count = 0;
+        for (int i = 0; i < this.sprites.size(); i++) {
+            MarioSprite sprite = this.sprites.get(i);
+            if (this.isEnemy(sprite)) {
+                if (3 * count + 2 < buffer.length) {
+                    buffer[3 * count] = sprite.type.getValue();
+                    buffer[3 * count + 1] = sprite.x;
+                    buffer[3 * count + 2] = sprite.y;
                 }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(currentX, currentY), detail);
+                count += 1;
             }
         }
+        return count;
+    }
+
+    public int[][] getSceneObservation(float centerX, float centerY, int detail) {
+        return this.getSceneObservation(centerX, centerY, detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    public int[][] getSceneObservation(float centerX, float centerY, int detail, int[][] ret) {
+        this.getObservationCache().getScene((int) centerX / 16, (int) centerY / 16, detail, true, ret);
         return ret;
     }
 
     public int[][] getEnemiesObservation(float centerX, float centerY, int detail) {
-        int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
-        int centerXInMap = (int) centerX / 16;
-        int centerYInMap = (int) centerY / 16;
+        return this.getEnemiesObservation(centerX, centerY, detail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
 
+    public int[][] getEnemiesObservation(float centerX, float centerY, int detail, int[][] ret) {
+        this.getObservationCache().getEnemies((int) centerX / 16, (int) centerY / 16, detail, ret);
+        return ret;
+    }
+
+    void fillEnemiesObservation(int centerXInMap, int centerYInMap, int detail, int[][] ret) {
         for (int w = 0; w < ret.length; w++)
             for (int h = 0; h < ret[0].length; h++)
                 ret[w][h] = 0;
@@ -237,33 +408,16 @@ public class MarioWorld {
                 ret[obsX][obsY] = MarioForwardModel.getSpriteTypeGeneralization(sprite.type, detail);
             }
         }
-        return ret;
     }
 
     public int[][] getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail) {
-        int[][] ret = new int[MarioGame.tileWidth][MarioGame.tileHeight];
+        return this.getMergedObservation(centerX, centerY, sceneDetail, enemiesDetail, new int[MarioGame.tileWidth][MarioGame.tileHeight]);
+    }
+
+    public int[][] getMergedObservation(float centerX, float centerY, int sceneDetail, int enemiesDetail, int[][] ret) {
         int centerXInMap = (int) centerX / 16;
         int centerYInMap = (int) centerY / 16;
-
-        for (int y = centerYInMap - MarioGame.tileHeight / 2, obsY = 0; y < centerYInMap + MarioGame.tileHeight / 2; y++, obsY++) {
-            for (int x = centerXInMap - MarioGame.tileWidth / 2, obsX = 0; x < centerXInMap + MarioGame.tileWidth / 2; x++, obsX++) {
-                int currentX = x;
-                if (currentX < 0) {
-                    currentX = 0;
-                }
-                if (currentX > level.tileWidth - 1) {
-                    currentX = level.tileWidth - 1;
-                }
-                int currentY = y;
-                if (currentY < 0) {
-                    currentY = 0;
-                }
-                if (currentY > level.tileHeight - 1) {
-                    currentY = level.tileHeight - 1;
-                }
-                ret[obsX][obsY] = MarioForwardModel.getBlockValueGeneralization(this.level.getBlock(x, y), sceneDetail);
-            }
-        }
+        this.getObservationCache().getScene(centerXInMap, centerYInMap, sceneDetail, false, ret);
 
         for (MarioSprite sprite : sprites) {
             if (sprite.type == SpriteType.MARIO)
@@ -290,7 +444,43 @@ public class MarioWorld {
         return sprite instanceof Enemy || sprite instanceof FlowerEnemy || sprite instanceof BulletBill;
     }
 
+    private void indexSpawnedSprites() {
+        int capacity = 16;
+        while (capacity < this.sprites.size() * 2) {
+            capacity *= 2;
+        }
+        if (this.spawnedCodes == null || this.spawnedCodes.length < capacity) {
+            this.spawnedCodes = new int[capacity];
+        } else {
+            Arrays.fill(this.spawnedCodes, 0);
+        }
+        int mask = this.spawnedCodes.length - 1;
+        for (MarioSprite sprite : sprites) {
+            if (sprite.spawnCode == 0) {
+                continue;
+            }
+            int index = (sprite.spawnCode * 0x9E3779B9) >>> 16 & mask;
+            while (this.spawnedCodes[index] != 0 && this.spawnedCodes[index] != sprite.spawnCode) {
+                index = (index + 1) & mask;
+            }
+            this.spawnedCodes[index] = sprite.spawnCode;
+        }
+    }
+
+    private boolean isSpawned(int spawnCode) {
+        int mask = this.spawnedCodes.length - 1;
+        int index = (spawnCode * 0x9E3779B9) >>> 16 & mask;
+        while (this.spawnedCodes[index] != 0) {
+            if (this.spawnedCodes[index] == spawnCode) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
     public void update(boolean[] actions) {
+        this.spriteVersion += 1;
         if (this.gameStatus != GameStatus.RUNNING) {
             return;
         }
@@ -328,6 +518,9 @@ public class MarioWorld {
 
         this.lastFrameEvents.clear();
 
+        long tickStart = this.recordPhases ? System.nanoTime() : 0;
+        long phaseStart = tickStart;
+        int phaseCount = 0;
         this.fireballsOnScreen = 0;
         for (MarioSprite sprite : sprites) {
             if (sprite.x < cameraX - 64 || sprite.x > cameraX + MarioGame.width + 64 || sprite.y > this.level.height + 32) {
@@ -335,6 +528,7 @@ public class MarioWorld {
                     this.lose();
                 }
                 this.removeSprite(sprite);
+                phaseCount += 1;
                 if (this.isEnemy(sprite) && sprite.y > MarioGame.height + 32) {
                     this.addEvent(EventType.FALL_KILL, sprite.type.getValue());
                 }
@@ -344,10 +538,17 @@ public class MarioWorld {
                 this.fireballsOnScreen += 1;
             }
         }
+        phaseStart = this.endPhase(CULL, phaseStart, phaseCount);
+        phaseCount = 0;
         this.level.update((int) cameraX, (int) cameraY);
 
-        for (int x = (int) cameraX / 16 - 1; x <= (int) (cameraX + MarioGame.width) / 16 + 1; x++) {
-            for (int y = (int) cameraY / 16 - 1; y <= (int) (cameraY + MarioGame.height) / 16 + 1; y++) {
+        this.indexSpawnedSprites();
+        int minX = (int) cameraX / 16 - 1;
+        int maxX = (int) (cameraX + MarioGame.width) / 16 + 1;
+        int minY = (int) cameraY / 16 - 1;
+        int maxY = (int) (cameraY + MarioGame.height) / 16 + 1;
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
                 int dir = 0;
                 if (x * 16 + 8 > mario.x + 16)
                     dir = -1;
@@ -356,34 +557,28 @@ public class MarioWorld {
 
                 SpriteType type = level.getSpriteType(x, y);
                 if (type != SpriteType.NONE) {
-                    String spriteCode = level.getSpriteCode(x, y);
-                    boolean found = false;
-                    for (MarioSprite sprite : sprites) {
-                        if (sprite.initialCode.equals(spriteCode)) {
-                            found = true;
-                            break;
-                        }
+                    int spawnCode = level.getSpawnCode(x, y);
+                    if (!this.level.wasScannedBefore(x, y, this.currentTick) && !this.isSpawned(spawnCode)) {
+                        MarioSprite sprite = type.spawnSprite(this.visuals, x, y, dir);
+                        sprite.spawnCode = spawnCode;
+                        this.addSprite(sprite);
+                        phaseCount += 1;
                     }
-                    if (!found) {
-                        if (this.level.getLastSpawnTick(x, y) != this.currentTick - 1) {
-                            MarioSprite sprite = type.spawnSprite(this.visuals, x, y, dir);
-                            sprite.initialCode = spriteCode;
-                            this.addSprite(sprite);
-                        }
-                    }
-                    this.level.setLastSpawnTick(x, y, this.currentTick);
                 }
 
                 if (dir != 0) {
-                    ArrayList<TileFeature> features = TileFeature.getTileType(this.level.getBlock(x, y));
-                    if (features.contains(TileFeature.SPAWNER)) {
+                    if (TileFeature.hasFeature(this.level.getBlock(x, y), TileFeature.SPAWNER)) {
                         if (this.currentTick % 100 == 0) {
                             addSprite(new BulletBill(this.visuals, x * 16 + 8 + dir * 8, y * 16 + 15, dir));
+                            phaseCount += 1;
                         }
                     }
                 }
             }
         }
+        this.level.setScannedArea(this.currentTick, minX, maxX, minY, maxY);
+        phaseStart = this.endPhase(SPAWN_SCAN, phaseStart, phaseCount);
+        phaseCount = 0;
 
         this.mario.actions = actions;
         for (MarioSprite sprite : sprites) {
@@ -391,16 +586,32 @@ public class MarioWorld {
                 continue;
             }
             sprite.update();
+            phaseCount += 1;
         }
+        phaseStart = this.endPhase(SPRITE_UPDATE, phaseStart, phaseCount);
+        phaseCount = 0;
         for (MarioSprite sprite : sprites) {
             if (!sprite.alive) {
                 continue;
             }
             sprite.collideCheck();
+            phaseCount += 1;
         }
+        phaseStart = this.endPhase(COLLIDE_CHECK, phaseStart, phaseCount);
+        phaseCount = 0;
 
+        if (!shellsToCheck.isEmpty() || !fireballsToCheck.isEmpty()) {
+            if (this.collisionGrid == null) {
+                this.collisionGrid = new MarioCollisionGrid();
+            }
+            // sprites only die during the checks and never move, so the grid stays valid for both passes
+            this.collisionGrid.build(sprites);
+        }
         for (Shell shell : shellsToCheck) {
-            for (MarioSprite sprite : sprites) {
+            int count = this.collisionGrid.query(shell.x);
+            phaseCount += count;
+            for (int i = 0; i < count; i++) {
+                MarioSprite sprite = sprites.get(this.collisionGrid.getCandidate(i));
                 if (sprite != shell && shell.alive && sprite.alive) {
                     if (sprite.shellCollideCheck(shell)) {
                         this.removeSprite(sprite);
@@ -409,9 +620,14 @@ public class MarioWorld {
             }
         }
         shellsToCheck.clear();
+        phaseStart = this.endPhase(SHELL_CHECK, phaseStart, phaseCount);
+        phaseCount = 0;
 
         for (Fireball fireball : fireballsToCheck) {
-            for (MarioSprite sprite : sprites) {
+            int count = this.collisionGrid.query(fireball.x);
+            phaseCount += count;
+            for (int i = 0; i < count; i++) {
+                MarioSprite sprite = sprites.get(this.collisionGrid.getCandidate(i));
                 if (sprite != fireball && fireball.alive && sprite.alive) {
                     if (sprite.fireballCollideCheck(fireball)) {
                         if (this.visuals) {
@@ -423,11 +639,14 @@ public class MarioWorld {
             }
         }
         fireballsToCheck.clear();
+        phaseStart = this.endPhase(FIREBALL_CHECK, phaseStart, phaseCount);
 
+        phaseCount = addedSprites.size() + removedSprites.size();
         sprites.addAll(0, addedSprites);
         sprites.removeAll(removedSprites);
         addedSprites.clear();
         removedSprites.clear();
+        this.endPhase(MERGE, phaseStart, phaseCount);
 
         //punishing forward model
         if (this.killEvents != null) {
@@ -437,25 +656,28 @@ public class MarioWorld {
                 }
             }
         }
+        if (this.recordPhases) {
+            this.metrics.getHistogram(MarioMetrics.TICK).record(System.nanoTime() - tickStart);
+            this.metrics.increment(MarioMetrics.TICKS, 1);
+        }
     }
 
     public void bump(int xTile, int yTile, boolean canBreakBricks) {
         int block = this.level.getBlock(xTile, yTile);
-        ArrayList<TileFeature> features = TileFeature.getTileType(block);
 
-        if (features.contains(TileFeature.BUMPABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.BUMPABLE)) {
             bumpInto(xTile, yTile - 1);
             this.addEvent(EventType.BUMP, MarioForwardModel.OBS_QUESTION_BLOCK);
             level.setBlock(xTile, yTile, 14);
             level.setShiftIndex(xTile, yTile, 4);
 
-            if (features.contains(TileFeature.SPECIAL)) {
+            if (TileFeature.hasFeature(block, TileFeature.SPECIAL)) {
                 if (!this.mario.isLarge) {
                     addSprite(new Mushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 } else {
                     addSprite(new FireFlower(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
                 }
-            } else if (features.contains(TileFeature.LIFE)) {
+            } else if (TileFeature.hasFeature(block, TileFeature.LIFE)) {
                 addSprite(new LifeMushroom(this.visuals, xTile * 16 + 9, yTile * 16 + 8));
             } else {
                 mario.collectCoin();
@@ -465,7 +687,7 @@ public class MarioWorld {
             }
         }
 
-        if (features.contains(TileFeature.BREAKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.BREAKABLE)) {
             bumpInto(xTile, yTile - 1);
             if (canBreakBricks) {
                 this.addEvent(EventType.BUMP, MarioForwardModel.OBS_BRICK);
@@ -486,7 +708,7 @@ public class MarioWorld {
 
     public void bumpInto(int xTile, int yTile) {
         int block = level.getBlock(xTile, yTile);
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.addEvent(EventType.COLLECT, block);
             this.mario.collectCoin();
             level.setBlock(xTile, yTile, 0);
@@ -2,23 +2,42 @@ package engine.graphics;
 
 import java.awt.Graphics;
 import java.awt.Image;
-import java.util.ArrayList;
 
 import engine.core.MarioGame;
+import engine.core.MarioLevel;
 import engine.helper.TileFeature;
 
 public class MarioTilemap extends MarioGraphics {
     public Image[][] sheet;
+    public MarioLevel level;
+    /**
+     * @deprecated the tiles are read from {@link #level}, this is only set by the tile array constructor
+     */
+    @Deprecated
     public int[][] currentIndeces;
     public int[][] indexShift;
     public float[][] moveShift;
     public int animationIndex;
 
+    public MarioTilemap(Image[][] sheet, MarioLevel level) {
+        this(sheet, level, null, level.tileWidth, level.tileHeight);
+    }
+
+    /**
+     * @deprecated draws a fixed copy of the tiles, use {@link #MarioTilemap(Image[][], MarioLevel)} so the
+     * changes of the level are drawn
+     */
+    @Deprecated
     public MarioTilemap(Image[][] sheet, int[][] currentIndeces) {
+        this(sheet, null, currentIndeces, currentIndeces.length, currentIndeces[0].length);
+    }
+
+    private MarioTilemap(Image[][] sheet, MarioLevel level, int[][] currentIndeces, int width, int height) {
         this.sheet = sheet;
+        this.level = level;
         this.currentIndeces = currentIndeces;
-        this.indexShift = new int[currentIndeces.length][currentIndeces[0].length];
-        this.moveShift = new float[currentIndeces.length][currentIndeces[0].length];
+        this.indexShift = new int[width][height];
+        this.moveShift = new float[width][height];
         this.animationIndex = 0;
     }
 
@@ -33,7 +52,7 @@ public class MarioTilemap extends MarioGraphics {
 
         for (int xTile = xMin; xTile <= xMax; xTile++) {
             for (int yTile = yMin; yTile <= yMax; yTile++) {
-                if (xTile < 0 || yTile < 0 || xTile >= currentIndeces.length || yTile >= currentIndeces[0].length) {
+                if (xTile < 0 || yTile < 0 || xTile >= this.indexShift.length || yTile >= this.indexShift[0].length) {
                     continue;
                 }
                 if (this.moveShift[xTile][yTile] > 0) {
@@ -42,15 +61,15 @@ public class MarioTilemap extends MarioGraphics {
                         this.moveShift[xTile][yTile] = 0;
                     }
                 }
-                ArrayList<TileFeature> features = TileFeature.getTileType(this.currentIndeces[xTile][yTile]);
-                if (features.contains(TileFeature.ANIMATED)) {
+                int tile = this.level != null ? this.level.getBlock(xTile, yTile) : this.currentIndeces[xTile][yTile];
+                if (TileFeature.hasFeature(tile, TileFeature.ANIMATED)) {
                     if (this.animationIndex == 0) {
                         this.indexShift[xTile][yTile] = (this.indexShift[xTile][yTile] + 1) % 3;
                     }
                 } else {
                     this.indexShift[xTile][yTile] = 0;
                 }
-                int index = currentIndeces[xTile][yTile] + indexShift[xTile][yTile];
+                int index = tile + indexShift[xTile][yTile];
                 int move = (int) moveShift[xTile][yTile];
                 Image img = sheet[index % 8][index / 8];
                 og.drawImage(img, xTile * 16 - x, yTile * 16 - y - move, null);
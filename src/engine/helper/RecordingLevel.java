@@ -0,0 +1,12 @@
+package engine.helper;
+
+public enum RecordingLevel {
+    // nothing is recorded, only the final world state is available in the result
+    NONE,
+    // the result statistics are counted while the game runs, no event is kept
+    SUMMARY,
+    // the result statistics and a packed MarioReplay of every tick are recorded
+    REPLAY,
+    // the statistics and the full lists of game events and agent events are recorded, no MarioReplay is built
+    FULL
+}
@@ -14,6 +14,60 @@ public enum TileFeature {
     ANIMATED,
     SPAWNER;
 
+    // feature bitmask of every tile index, tiles outside the table have no features
+    private static final int[] tileFeatures = new int[64];
+
+    static {
+        for (int i = 0; i < tileFeatures.length; i++) {
+            for (TileFeature feature : getTileType(i)) {
+                tileFeatures[i] |= feature.mask();
+            }
+        }
+    }
+
+    private int mask() {
+        return 1 << this.ordinal();
+    }
+
+    /**
+     * Get all the features of a tile packed as a bitmask of the feature ordinals
+     *
+     * @param index the tile index
+     * @return bitmask with bit (1 &lt;&lt; feature.ordinal()) set for every feature of the tile
+     */
+    public static int getTileFeatures(int index) {
+        if (index < 0 || index >= tileFeatures.length) {
+            return 0;
+        }
+        return tileFeatures[index];
+    }
+
+    /**
+     * Check if a tile has a certain feature without allocating
+     *
+     * @param index   the tile index
+     * @param feature the feature to look for
+     * @return true if the tile has that feature and false otherwise
+     */
+    public static boolean hasFeature(int index, TileFeature feature) {
+        return (getTileFeatures(index) & feature.mask()) != 0;
+    }
+
+    /**
+     * Check if a tile blocks a sprite moving with a certain speed
+     *
+     * @param index the tile index
+     * @param xa    the horizontal speed of the sprite
+     * @param ya    the vertical speed of the sprite
+     * @return true if the tile blocks the movement and false otherwise
+     */
+    public static boolean isBlocking(int index, float xa, float ya) {
+        int features = getTileFeatures(index);
+        return (features & BLOCK_ALL.mask()) != 0 ||
+                (ya < 0 && (features & BLOCK_UPPER.mask()) != 0) ||
+                (ya > 0 && (features & BLOCK_LOWER.mask()) != 0);
+    }
+
     public static ArrayList<TileFeature> getTileType(int index) {
         ArrayList<TileFeature> features = new ArrayList<>();
         switch (index) {
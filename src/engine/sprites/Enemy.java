@@ -3,6 +3,7 @@ package engine.sprites;
 import java.awt.Graphics;
 
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.effects.DeathEffect;
 import engine.effects.SquishEffect;
 import engine.graphics.MarioImage;
@@ -58,7 +59,7 @@ public class Enemy extends MarioSprite {
         Enemy e = new Enemy(false, this.x, this.y, this.facing, this.type);
         e.xa = this.xa;
         e.ya = this.ya;
-        e.initialCode = this.initialCode;
+        e.spawnCode = this.spawnCode;
         e.width = this.width;
         e.height = this.height;
         e.onGround = this.onGround;
@@ -68,6 +69,22 @@ public class Enemy extends MarioSprite {
         return e;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        store.setInt(index, 0, this.onGround ? 1 : 0);
+        store.setInt(index, 1, this.winged ? 1 : 0);
+        store.setInt(index, 2, this.avoidCliffs ? 1 : 0);
+        store.setInt(index, 3, this.noFireballDeath ? 1 : 0);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        this.onGround = store.getInt(index, 0) != 0;
+        this.winged = store.getInt(index, 1) != 0;
+        this.avoidCliffs = store.getInt(index, 2) != 0;
+        this.noFireballDeath = store.getInt(index, 3) != 0;
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
@@ -85,9 +102,9 @@ public class Enemy extends MarioSprite {
                         ya = 0;
                     } else {
                         if (type == SpriteType.GREEN_KOOPA || type == SpriteType.GREEN_KOOPA_WINGED) {
-                            this.world.addSprite(new Shell(this.graphics != null, x, y, 1, this.initialCode));
+                            this.world.addSprite(new Shell(this.graphics != null, x, y, 1, this.spawnCode));
                         } else if (type == SpriteType.RED_KOOPA || type == SpriteType.RED_KOOPA_WINGED) {
-                            this.world.addSprite(new Shell(this.graphics != null, x, y, 0, this.initialCode));
+                            this.world.addSprite(new Shell(this.graphics != null, x, y, 0, this.spawnCode));
                         } else if (type == SpriteType.GOOMBA || type == SpriteType.GOOMBA_WINGED) {
                             if (this.graphics != null) {
                                 this.world.addEffect(new SquishEffect(this.x, this.y - 7));
@@ -3,6 +3,7 @@ package engine.sprites;
 import java.awt.Graphics;
 
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
@@ -32,7 +33,7 @@ public class FireFlower extends MarioSprite {
         FireFlower f = new FireFlower(false, x, y);
         f.xa = this.xa;
         f.ya = this.ya;
-        f.initialCode = this.initialCode;
+        f.spawnCode = this.spawnCode;
         f.width = this.width;
         f.height = this.height;
         f.facing = this.facing;
@@ -40,6 +41,16 @@ public class FireFlower extends MarioSprite {
         return f;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        store.setInt(index, 0, this.life);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        this.life = store.getInt(index, 0);
+    }
+
     @Override
     public void collideCheck() {
         if (!this.alive) {
@@ -3,6 +3,7 @@ package engine.sprites;
 import java.awt.Graphics;
 
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.SpriteType;
@@ -37,13 +38,23 @@ public class Fireball extends MarioSprite {
         Fireball f = new Fireball(false, this.x, this.y, this.facing);
         f.xa = this.xa;
         f.ya = this.ya;
-        f.initialCode = this.initialCode;
+        f.spawnCode = this.spawnCode;
         f.width = this.width;
         f.height = this.height;
         f.onGround = this.onGround;
         return f;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        store.setInt(index, 0, this.onGround ? 1 : 0);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        this.onGround = store.getInt(index, 0) != 0;
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
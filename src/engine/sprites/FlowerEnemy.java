@@ -1,6 +1,7 @@
 package engine.sprites;
 
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.helper.SpriteType;
 
 public class FlowerEnemy extends Enemy {
@@ -26,7 +27,7 @@ public class FlowerEnemy extends Enemy {
         FlowerEnemy sprite = new FlowerEnemy(false, this.x, this.y);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
-        sprite.initialCode = this.initialCode;
+        sprite.spawnCode = this.spawnCode;
         sprite.width = this.width;
         sprite.height = this.height;
         sprite.onGround = this.onGround;
@@ -38,6 +39,20 @@ public class FlowerEnemy extends Enemy {
         return sprite;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        super.saveState(store, index);
+        store.setInt(index, 4, this.waitTime);
+        store.setFloat(index, 0, this.yStart);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        super.loadState(store, index);
+        this.waitTime = store.getInt(index, 4);
+        this.yStart = store.getFloat(index, 0);
+    }
+
     @Override
     public void update() {
         if (!this.alive) {
@@ -3,6 +3,7 @@ package engine.sprites;
 import java.awt.Graphics;
 
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
@@ -37,7 +38,7 @@ public class LifeMushroom extends MarioSprite {
         LifeMushroom m = new LifeMushroom(false, this.x, this.y);
         m.xa = this.xa;
         m.ya = this.ya;
-        m.initialCode = this.initialCode;
+        m.spawnCode = this.spawnCode;
         m.width = this.width;
         m.height = this.height;
         m.facing = this.facing;
@@ -46,6 +47,18 @@ public class LifeMushroom extends MarioSprite {
         return m;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        store.setInt(index, 0, this.onGround ? 1 : 0);
+        store.setInt(index, 1, this.life);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        this.onGround = store.getInt(index, 0) != 0;
+        this.life = store.getInt(index, 1);
+    }
+
     public void collideCheck() {
         if (!this.alive) {
             return;
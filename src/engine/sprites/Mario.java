@@ -3,6 +3,7 @@ package engine.sprites;
 import java.awt.Graphics;
 
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
 import engine.helper.EventType;
@@ -11,11 +12,17 @@ import engine.helper.SpriteType;
 import engine.helper.TileFeature;
 
 public class Mario extends MarioSprite {
+    /**
+     * slot of the sprite store int state holding the buttons pressed on the last update
+     */
+    public static final int BUTTONS_SLOT = 9;
+
     public boolean isLarge, isFire;
     public boolean onGround, wasOnGround, isDucking, canShoot, mayJump;
     public boolean[] actions = null;
     public int jumpTime = 0;
 
+    private boolean[] restoredActions = null;
     private float xJumpSpeed, yJumpSpeed = 0;
     private int invulnerableTime = 0;
 
@@ -46,7 +53,7 @@ public class Mario extends MarioSprite {
         Mario sprite = new Mario(false, x - 8, y - 15);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
-        sprite.initialCode = this.initialCode;
+        sprite.spawnCode = this.spawnCode;
         sprite.width = this.width;
         sprite.height = this.height;
         sprite.facing = this.facing;
@@ -69,6 +76,61 @@ public class Mario extends MarioSprite {
         return sprite;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        store.setInt(index, 0, isLarge ? 1 : 0);
+        store.setInt(index, 1, isFire ? 1 : 0);
+        store.setInt(index, 2, onGround ? 1 : 0);
+        store.setInt(index, 3, wasOnGround ? 1 : 0);
+        store.setInt(index, 4, isDucking ? 1 : 0);
+        store.setInt(index, 5, canShoot ? 1 : 0);
+        store.setInt(index, 6, mayJump ? 1 : 0);
+        store.setInt(index, 7, jumpTime);
+        store.setInt(index, 8, invulnerableTime);
+        int buttons = -1;
+        if (this.actions != null) {
+            buttons = 0;
+            for (int i = 0; i < this.actions.length; i++) {
+                if (this.actions[i]) {
+                    buttons |= 1 << i;
+                }
+            }
+        }
+        store.setInt(index, BUTTONS_SLOT, buttons);
+        store.setFloat(index, 0, xJumpSpeed);
+        store.setFloat(index, 1, yJumpSpeed);
+        store.setFloat(index, 2, xJumpStart);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        isLarge = store.getInt(index, 0) != 0;
+        isFire = store.getInt(index, 1) != 0;
+        onGround = store.getInt(index, 2) != 0;
+        wasOnGround = store.getInt(index, 3) != 0;
+        isDucking = store.getInt(index, 4) != 0;
+        canShoot = store.getInt(index, 5) != 0;
+        mayJump = store.getInt(index, 6) != 0;
+        jumpTime = store.getInt(index, 7);
+        invulnerableTime = store.getInt(index, 8);
+        int buttons = store.getInt(index, BUTTONS_SLOT);
+        if (buttons == -1) {
+            this.actions = null;
+        } else {
+            // actions may be the array an agent passed to update, so the restore only writes into its own array
+            if (this.restoredActions == null || this.restoredActions.length != MarioActions.numberOfActions()) {
+                this.restoredActions = new boolean[MarioActions.numberOfActions()];
+            }
+            this.actions = this.restoredActions;
+            for (int i = 0; i < this.actions.length; i++) {
+                this.actions[i] = (buttons & (1 << i)) != 0;
+            }
+        }
+        xJumpSpeed = store.getFloat(index, 0);
+        yJumpSpeed = store.getFloat(index, 1);
+        xJumpStart = store.getFloat(index, 2);
+    }
+
     private boolean move(float xa, float ya) {
         while (xa > 8) {
             if (!move(8, 0))
@@ -161,7 +223,7 @@ public class Mario extends MarioSprite {
         boolean blocking = world.level.isBlocking(xTile, yTile, xa, ya);
         int block = world.level.getBlock(xTile, yTile);
 
-        if (TileFeature.getTileType(block).contains(TileFeature.PICKABLE)) {
+        if (TileFeature.hasFeature(block, TileFeature.PICKABLE)) {
             this.world.addEvent(EventType.COLLECT, block);
             this.collectCoin();
             world.level.setBlock(xTile, yTile, 0);
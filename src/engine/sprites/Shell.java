@@ -2,7 +2,9 @@ package engine.sprites;
 
 import java.awt.Graphics;
 
+import engine.core.MarioLevel;
 import engine.core.MarioSprite;
+import engine.core.MarioSpriteStore;
 import engine.effects.DeathEffect;
 import engine.graphics.MarioImage;
 import engine.helper.Assets;
@@ -18,7 +20,7 @@ public class Shell extends MarioSprite {
 
     private MarioImage graphics;
 
-    public Shell(boolean visuals, float x, float y, int shellType, String spriteCode) {
+    public Shell(boolean visuals, float x, float y, int shellType, int spawnCode) {
         super(x, y, SpriteType.SHELL);
 
         this.width = 4;
@@ -26,7 +28,7 @@ public class Shell extends MarioSprite {
         this.facing = 0;
         this.ya = -5;
         this.shellType = shellType;
-        this.initialCode = spriteCode;
+        this.spawnCode = spawnCode;
 
         if (visuals) {
             this.graphics = new MarioImage(Assets.enemies, shellType * 8 + 3);
@@ -36,9 +38,17 @@ public class Shell extends MarioSprite {
         }
     }
 
+    /**
+     * @deprecated use the constructor taking the spawn code, the sprite code is converted with MarioLevel.getSpawnCode
+     */
+    @Deprecated
+    public Shell(boolean visuals, float x, float y, int shellType, String spriteCode) {
+        this(visuals, x, y, shellType, MarioLevel.getSpawnCode(spriteCode));
+    }
+
     @Override
     public MarioSprite clone() {
-        Shell sprite = new Shell(false, this.x, this.y, this.shellType, this.initialCode);
+        Shell sprite = new Shell(false, this.x, this.y, this.shellType, this.spawnCode);
         sprite.xa = this.xa;
         sprite.ya = this.ya;
         sprite.width = this.width;
@@ -48,6 +58,18 @@ public class Shell extends MarioSprite {
         return sprite;
     }
 
+    @Override
+    public void saveState(MarioSpriteStore store, int index) {
+        store.setInt(index, 0, this.shellType);
+        store.setInt(index, 1, this.onGround ? 1 : 0);
+    }
+
+    @Override
+    public void loadState(MarioSpriteStore store, int index) {
+        this.shellType = store.getInt(index, 0);
+        this.onGround = store.getInt(index, 1) != 0;
+    }
+
     @Override
     public void update() {
         if (!this.alive) return;
@@ -0,0 +1,76 @@
+package engine.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * MarioLevel reads the level characters in place, these tests check that it builds the same level as the
+ * regex parser it replaced for the level files and for generated levels.
+ */
+public class MarioLevelParseTest {
+    private static void assertSameLevel(String name, String level) {
+        RegexMarioLevel expected = new RegexMarioLevel(level);
+        MarioLevel actual = new MarioLevel(level, false);
+        assertEquals(expected.width, actual.width, name + " width");
+        assertEquals(expected.height, actual.height, name + " height");
+        assertEquals(expected.tileWidth, actual.tileWidth, name + " tile width");
+        assertEquals(expected.tileHeight, actual.tileHeight, name + " tile height");
+        assertEquals(expected.totalCoins, actual.totalCoins, name + " coins");
+        assertEquals(expected.marioTileX, actual.marioTileX, name + " mario x");
+        assertEquals(expected.marioTileY, actual.marioTileY, name + " mario y");
+        assertEquals(expected.exitTileX, actual.exitTileX, name + " exit x");
+        assertEquals(expected.exitTileY, actual.exitTileY, name + " exit y");
+        for (int x = 0; x < expected.tileWidth; x++) {
+            for (int y = 0; y < expected.tileHeight; y++) {
+                assertEquals(expected.levelTiles[x][y], actual.getBlock(x, y), name + " tile " + x + "," + y);
+                assertEquals(expected.spriteTemplates[x][y], actual.getSpriteType(x, y), name + " sprite " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void parsesLevelFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path levels = Paths.get("levels");
+        if (Files.isDirectory(levels)) {
+            try (Stream<Path> paths = Files.walk(levels)) {
+                files = paths.filter(p -> p.getFileName().toString().matches("lvl-.*\\.txt")).sorted().collect(Collectors.toList());
+            }
+        }
+        for (Path file : files) {
+            String level = new String(Files.readAllBytes(file));
+            if (level.trim().length() > 0) {
+                assertSameLevel(file.toString(), level);
+            }
+        }
+    }
+
+    @Test
+    public void parsesGeneratedLevels() {
+        for (int seed = 0; seed < 1000; seed++) {
+            int width = 20 + seed % 7 * 50;
+            int height = 14 + seed % 3;
+            String level = new RandomLevelGenerator(seed).getGeneratedLevel(new MarioLevelModel(width, height), null);
+            assertSameLevel("generated " + seed, level);
+            assertSameLevel("generated " + seed + " with \\r\\n", level.replace("\n", "\r\n"));
+            assertSameLevel("generated " + seed + " with empty lines", level + "\n\n");
+        }
+    }
+
+    @Test
+    public void parsesEmptyLevels() {
+        for (String level : new String[]{"", "\n", " \r\n  \n"}) {
+            assertSameLevel("empty", level);
+        }
+    }
+}
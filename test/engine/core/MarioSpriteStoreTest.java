@@ -0,0 +1,110 @@
+package engine.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import engine.helper.MarioActions;
+import engine.helper.RecordingLevel;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays games recorded with the object model while passing the state through a MarioSpriteStore: after
+ * every tick the world is saved into a snapshot and restored into a second world that plays the next tick.
+ * The restored world reuses sprite objects from two ticks before, so any state the store misses shows up.
+ * Every tick must end in exactly the same state with the same events as the object model.
+ */
+public class MarioSpriteStoreTest {
+    private static MarioWorld createWorld(MarioReplay replay) {
+        MarioWorld world = new MarioWorld(replay.getKillEvents());
+        world.visuals = false;
+        world.initializeLevel(replay.getLevel(), 1000 * replay.getTimer());
+        world.mario.isLarge = replay.getInitialMarioState() > 0;
+        world.mario.isFire = replay.getInitialMarioState() > 1;
+        world.update(new boolean[MarioActions.numberOfActions()]);
+        return world;
+    }
+
+    private static void assertSameReplay(String name, MarioReplay replay) {
+        MarioWorld objectWorld = createWorld(replay);
+        MarioWorld[] storeWorlds = {createWorld(replay), createWorld(replay)};
+        MarioForwardModel objects = new MarioForwardModel(objectWorld);
+        MarioForwardModel[] stored = {new MarioForwardModel(storeWorlds[0]), new MarioForwardModel(storeWorlds[1])};
+        MarioSnapshot snapshot = new MarioSnapshot();
+        for (int tick = 0; tick < replay.getNumTicks(); tick++) {
+            boolean[] actions = replay.getActions(tick);
+            MarioForwardModel from = stored[tick % 2];
+            MarioForwardModel to = stored[(tick + 1) % 2];
+            objects.advance(actions);
+            from.advance(actions);
+            to.restore(from.snapshot(snapshot));
+            assertEquals(objects.snapshot().getStateHash(), to.snapshot().getStateHash(), name + " state at tick " + tick);
+            assertSameEvents(name + " events at tick " + tick, objectWorld.lastFrameEvents, storeWorlds[(tick + 1) % 2].lastFrameEvents);
+        }
+        assertEquals(objects.getGameStatus(), stored[replay.getNumTicks() % 2].getGameStatus(), name + " game status");
+    }
+
+    private static void assertSameEvents(String name, ArrayList<MarioEvent> expected, ArrayList<MarioEvent> actual) {
+        assertEquals(expected.size(), actual.size(), name + " count");
+        for (int i = 0; i < expected.size(); i++) {
+            MarioEvent e = expected.get(i);
+            MarioEvent a = actual.get(i);
+            assertEquals(e.getEventType(), a.getEventType(), name + " type");
+            assertEquals(e.getEventParam(), a.getEventParam(), name + " param");
+            assertEquals(e.getMarioX(), a.getMarioX(), name + " mario x");
+            assertEquals(e.getMarioY(), a.getMarioY(), name + " mario y");
+            assertEquals(e.getMarioState(), a.getMarioState(), name + " mario state");
+        }
+    }
+
+    private static MarioReplay record(MarioAgent agent, String level, int marioState, long seed) {
+        MarioResult result = new MarioGame().simulateGame(agent, level, 40, marioState, 100, RecordingLevel.REPLAY, seed);
+        return result.getReplay();
+    }
+
+    @Test
+    public void replaysLevelFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path levels = Paths.get("levels");
+        if (Files.isDirectory(levels)) {
+            try (Stream<Path> paths = Files.walk(levels)) {
+                files = paths.filter(p -> p.getFileName().toString().matches("lvl-.*\\.txt")).sorted().collect(Collectors.toList());
+            }
+        }
+        // the search agent is too slow for the whole corpus, the two fast agents take turns
+        ArrayList<Supplier<MarioAgent>> factories = new ArrayList<>();
+        factories.add(agents.random.Agent::new);
+        factories.add(agents.sergeyKarakovskiy.Agent::new);
+        for (int i = 0; i < files.size(); i++) {
+            String level = new String(Files.readAllBytes(files.get(i)));
+            if (level.trim().length() > 0) {
+                MarioReplay replay = record(factories.get(i % factories.size()).get(), level, i % 3, i);
+                assertSameReplay(files.get(i).toString(), replay);
+            }
+        }
+    }
+
+    @Test
+    public void replaysGeneratedLevels() {
+        ArrayList<Supplier<MarioAgent>> factories = new ArrayList<>();
+        factories.add(agents.random.Agent::new);
+        factories.add(agents.sergeyKarakovskiy.Agent::new);
+        factories.add(agents.robinBaumgarten.Agent::new);
+        for (int seed = 0; seed < 30; seed++) {
+            String level = new RandomLevelGenerator(seed).getGeneratedLevel(new MarioLevelModel(150, 16), null);
+            for (int a = 0; a < factories.size(); a++) {
+                MarioReplay replay = record(factories.get(a).get(), level, seed % 3, seed);
+                assertSameReplay("level " + seed + " agent " + a, replay);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package engine.core;
+
+import java.util.Random;
+
+/**
+ * Generates levels from a seed with every tile the level parser knows: ground with gaps, pipes of every
+ * kind, cannons, platforms, blocks, coins and enemies. The same seed always gives the same level.
+ */
+class RandomLevelGenerator implements MarioLevelGenerator {
+    private static final char[] blocks = {MarioLevelModel.NORMAL_BRICK, MarioLevelModel.COIN_BRICK,
+            MarioLevelModel.LIFE_BRICK, MarioLevelModel.SPECIAL_BRICK, MarioLevelModel.SPECIAL_QUESTION_BLOCK,
+            MarioLevelModel.COIN_QUESTION_BLOCK, MarioLevelModel.COIN_HIDDEN_BLOCK, MarioLevelModel.LIFE_HIDDEN_BLOCK,
+            MarioLevelModel.USED_BLOCK, MarioLevelModel.COIN, MarioLevelModel.PYRAMID_BLOCK, '?', 'Q'};
+
+    private final Random random;
+
+    RandomLevelGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public String getGeneratedLevel(MarioLevelModel model, MarioTimer timer) {
+        model.clearMap();
+        int width = model.getWidth();
+        int floor = model.getHeight() - 2;
+        for (int x = 0; x < width; x++) {
+            if (x < 8 || x >= width - 8 || this.random.nextInt(10) != 0) {
+                model.setRectangle(x, floor, 1, 2, MarioLevelModel.GROUND);
+            }
+        }
+        for (int x = 10; x < width - 12; x += 4 + this.random.nextInt(8)) {
+            int height = 1 + this.random.nextInt(4);
+            switch (this.random.nextInt(7)) {
+                case 0:
+                case 1:
+                    char pipe = this.random.nextBoolean() ? MarioLevelModel.PIPE : MarioLevelModel.PIPE_FLOWER;
+                    model.setRectangle(x, floor - height, this.random.nextInt(4) == 0 ? 1 : 2, height, pipe);
+                    break;
+                case 2:
+                    model.setRectangle(x, floor - height, 1, height, MarioLevelModel.BULLET_BILL);
+                    break;
+                case 3:
+                    model.setBlock(x, floor - 3, 'B');
+                    model.setRectangle(x, floor - 2, 1, 2, 'b');
+                    break;
+                case 4:
+                    int platform = 2 + this.random.nextInt(4);
+                    model.setRectangle(x, floor - height - 2, platform, 1, MarioLevelModel.PLATFORM);
+                    model.setRectangle(x, floor - height - 1, platform, height + 1, MarioLevelModel.PLATFORM_BACKGROUND);
+                    break;
+                case 5:
+                    model.setBlock(x, floor - height, '<');
+                    model.setBlock(x + 1, floor - height, '>');
+                    model.setRectangle(x, floor - height + 1, 1, height - 1, '[');
+                    model.setRectangle(x + 1, floor - height + 1, 1, height - 1, ']');
+                    break;
+                default:
+                    for (int i = 0; i < 2 + this.random.nextInt(4); i++) {
+                        model.setBlock(x + i, floor - 4, blocks[this.random.nextInt(blocks.length)]);
+                    }
+                    break;
+            }
+        }
+        char[] enemies = MarioLevelModel.getEnemyCharacters();
+        for (int i = 0; i < width / 8; i++) {
+            int x = 8 + this.random.nextInt(width - 16);
+            int y = 1 + this.random.nextInt(floor - 1);
+            if (model.getBlock(x, y) == MarioLevelModel.EMPTY) {
+                model.setBlock(x, y, this.random.nextInt(6) == 0 ? 'E' : enemies[this.random.nextInt(enemies.length)]);
+            }
+        }
+        if (this.random.nextInt(4) != 0) {
+            model.setBlock(1 + this.random.nextInt(4), floor - 1, MarioLevelModel.MARIO_START);
+        }
+        if (this.random.nextInt(4) != 0) {
+            model.setBlock(width - 2 - this.random.nextInt(4), floor - 1, MarioLevelModel.MARIO_EXIT);
+        }
+        return model.getMap();
+    }
+
+    @Override
+    public String getGeneratorName() {
+        return "RandomLevelGenerator";
+    }
+}